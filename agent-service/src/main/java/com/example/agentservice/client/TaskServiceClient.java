@@ -0,0 +1,33 @@
+package com.example.agentservice.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Typed access to the task-service endpoints agent-service uses, over the shared
+ * {@code taskServiceWebClient}.
+ */
+@Component
+@Slf4j
+public class TaskServiceClient {
+
+    private final WebClient webClient;
+
+    public TaskServiceClient(@Qualifier("taskServiceWebClient") WebClient webClient) {
+        this.webClient = webClient;
+    }
+
+    // PATCH /api/tasks/{id}: task-service applies the given fields with one atomic $set
+    public Mono<Void> patchTask(String taskId, Map<String, Object> changes) {
+        return webClient.patch()
+                .uri("/api/tasks/{id}", taskId)
+                .bodyValue(changes)
+                .retrieve()
+                .bodyToMono(Void.class);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.agentservice.config;
+
+import com.example.agentservice.resilience.CircuitBreaker;
+import com.example.agentservice.resilience.RetryPolicies;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class ResilienceConfig {
+
+    @Bean
+    public CircuitBreaker taskServiceCircuitBreaker(
+            @Value("${resilience.task-service.window-size:20}") int windowSize,
+            @Value("${resilience.task-service.minimum-calls:10}") int minimumCalls,
+            @Value("${resilience.task-service.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${resilience.task-service.open-duration:PT30S}") Duration openDuration,
+            @Value("${resilience.task-service.half-open-calls:1}") int halfOpenCalls) {
+        return new CircuitBreaker("task-service", windowSize, minimumCalls, failureRateThreshold,
+                openDuration, halfOpenCalls, RetryPolicies::isDependencyFailure);
+    }
+
+    // Guards Ollama as a whole; single hosts are already taken out of rotation by the endpoint pool
+    @Bean
+    public CircuitBreaker ollamaCircuitBreaker(
+            @Value("${resilience.ollama.window-size:20}") int windowSize,
+            @Value("${resilience.ollama.minimum-calls:10}") int minimumCalls,
+            @Value("${resilience.ollama.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${resilience.ollama.open-duration:PT30S}") Duration openDuration,
+            @Value("${resilience.ollama.half-open-calls:1}") int halfOpenCalls) {
+        return new CircuitBreaker("ollama", windowSize, minimumCalls, failureRateThreshold,
+                openDuration, halfOpenCalls, RetryPolicies::isDependencyFailure);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.agentservice.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * One WebClient for all calls to task-service, on a dedicated, bounded connection pool. Pool metrics
+ * are published as {@code reactor.netty.connection.provider.*} with {@code name=task-service}.
+ */
+@Configuration
+public class TaskServiceClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider taskServiceConnectionProvider(
+            @Value("${task.service.client.max-connections:50}") int maxConnections,
+            @Value("${task.service.client.pending-acquire-max:200}") int pendingAcquireMax,
+            @Value("${task.service.client.pending-acquire-timeout:PT5S}") Duration pendingAcquireTimeout,
+            @Value("${task.service.client.max-idle-time:PT30S}") Duration maxIdleTime,
+            @Value("${task.service.client.max-life-time:PT5M}") Duration maxLifeTime) {
+        return ConnectionProvider.builder("task-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMax)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                // Closed before servers or proxies drop idle keep-alive connections on their side
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public WebClient taskServiceWebClient(
+            WebClient.Builder webClientBuilder,
+            ConnectionProvider taskServiceConnectionProvider,
+            ObjectProvider<ReactorLoadBalancerExchangeFilterFunction> loadBalancer,
+            @Value("${task.service.url:http://task-service:8081}") String taskServiceUrl,
+            @Value("${task.service.load-balanced:false}") boolean loadBalanced,
+            @Value("${task.service.service-id:task-service}") String serviceId,
+            @Value("${task.service.client.connect-timeout:PT2S}") Duration connectTimeout,
+            @Value("${task.service.client.response-timeout:PT10S}") Duration responseTimeout,
+            @Value("${task.service.client.http2:false}") boolean http2) {
+        HttpClient httpClient = HttpClient.create(taskServiceConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                // Applies per request and is removed afterwards, so idle pooled connections are unaffected
+                .responseTimeout(responseTimeout);
+        if (http2) {
+            // Cleartext HTTP/2 (task-service needs server.http2.enabled); falls back to HTTP/1.1
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+
+        WebClient.Builder builder = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient));
+        if (loadBalanced) {
+            // Instances are resolved from Eureka on each request instead of the fixed task.service.url
+            builder.baseUrl("http://" + serviceId).filter(loadBalancer.getObject());
+        } else {
+            builder.baseUrl(taskServiceUrl);
+        }
+        return builder.build();
+    }
+}
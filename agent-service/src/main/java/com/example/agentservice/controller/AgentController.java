@@ -1,15 +1,41 @@
 package com.example.agentservice.controller;
 
+import com.example.agentservice.model.AnalysisJob;
+import com.example.agentservice.model.AnalysisJobSummary;
+import com.example.agentservice.model.AnalysisStreamEvent;
+import com.example.agentservice.model.StoredFile;
 import com.example.agentservice.model.TaskAnalysis;
+import com.example.agentservice.model.TaskAnalysisRequest;
+import com.example.agentservice.service.AnalysisJobService;
+import com.example.agentservice.service.AnalysisJobWorker;
+import com.example.agentservice.service.BatchAnalysisService;
+import com.example.agentservice.service.FileStore;
+import com.example.agentservice.service.OllamaAdmission;
+import com.example.agentservice.service.OllamaOverloadedException;
 import com.example.agentservice.service.TaskAnalysisService;
 import com.example.agentservice.service.OllamaService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -18,12 +44,33 @@ import java.util.Map;
 @Slf4j
 public class AgentController {
     
+    private static final int QUEUE_FULL_RETRY_AFTER_SECONDS = 30;
+    private static final String FILES_PATH = "/api/agent/files/";
+    
     @Autowired
     private TaskAnalysisService taskAnalysisService;
     
+    @Autowired
+    private AnalysisJobService analysisJobService;
+    
+    @Autowired
+    private AnalysisJobWorker analysisJobWorker;
+    
+    @Autowired
+    private FileStore fileStore;
+    
     @Autowired
     private OllamaService ollamaService;
     
+    @Autowired
+    private BatchAnalysisService batchAnalysisService;
+    
+    @Autowired
+    private OllamaAdmission ollamaAdmission;
+    
+    @Value("${agent.batch.max-items:200}")
+    private int maxBatchSize;
+    
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
         return ResponseEntity.ok(Map.of("status", "UP", "service", "agent-service"));
@@ -44,16 +91,7 @@ public class AgentController {
         // CPU-friendly mode: If file is uploaded, mark as actually completed
         if (fileUploaded || taskDone) {
             log.info("Task has file uploaded or is marked as done - marking as actually completed");
-            TaskAnalysis analysis = new TaskAnalysis();
-            analysis.setTaskId(taskId);
-            analysis.setTaskTitle(title);
-            analysis.setTaskDescription(description);
-            analysis.setMarkedCompleted(completed);
-            analysis.setActuallyCompleted(true); // File uploaded = actually completed
-            analysis.setConfidence(1.0);
-            analysis.setReasoning("File has been uploaded. Task is marked as completed.");
-            analysis.setRecommendation("Task is complete based on file upload.");
-            analysis.setGrade(null);
+            TaskAnalysis analysis = taskAnalysisService.uploadedAnalysis(taskId, title, description, completed);
             
             // Update task in MongoDB if not already done
             if (!taskDone) {
@@ -70,31 +108,28 @@ public class AgentController {
         }
         
         // If no file uploaded, do normal analysis (but skip Ollama in CPU-friendly mode)
-        TaskAnalysis analysis = new TaskAnalysis();
-        analysis.setTaskId(taskId);
-        analysis.setTaskTitle(title);
-        analysis.setTaskDescription(description);
-        analysis.setMarkedCompleted(completed);
-        analysis.setActuallyCompleted(completed); // If marked completed and no file, assume it's done
-        analysis.setConfidence(completed ? 0.8 : 0.5);
-        analysis.setReasoning(completed ? 
-            "Task is marked as completed. No file uploaded, so completion is based on task status." :
-            "Task is not yet completed. Student should upload a file to complete the task.");
-        analysis.setRecommendation(completed ?
-            "Task appears to be completed. Consider verifying if file upload is needed." :
-            "Please upload a file to complete this task.");
-        analysis.setGrade(null);
-        
-        return Mono.just(ResponseEntity.ok(analysis));
+        return Mono.just(ResponseEntity.ok(taskAnalysisService.statusAnalysis(taskId, title, description, completed)));
+    }
+    
+    // Analyzes a list of tasks in one call; results come back in request order
+    @PostMapping("/analyze/batch")
+    public Mono<ResponseEntity<List<TaskAnalysis>>> analyzeTasks(@RequestBody List<TaskAnalysisRequest> tasks) {
+        if (tasks.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "At most " + maxBatchSize + " tasks can be analyzed per batch");
+        }
+        log.info("Analyzing batch of {} tasks", tasks.size());
+        return batchAnalysisService.analyze(tasks).map(ResponseEntity::ok);
     }
     
+    // Accepts the upload and queues the analysis; poll GET /api/agent/jobs/{id} for the result
     @PostMapping("/analyze-file")
-    public Mono<ResponseEntity<TaskAnalysis>> analyzeTaskWithFile(
+    public ResponseEntity<?> analyzeTaskWithFile(
             @RequestParam("file") MultipartFile file,
             @RequestParam("taskId") String taskId,
             @RequestParam("title") String title,
             @RequestParam(required = false) String description,
-            @RequestParam(required = false) String fileUrl) {
+            @RequestParam(required = false) String fileUrl) { // Superseded by the file store URL, kept for older clients
         
         log.info("=== FILE UPLOAD ENDPOINT CALLED ===");
         log.info("Received file upload request: taskId={}, title={}, filename={}", 
@@ -111,36 +146,17 @@ public class AgentController {
             errorAnalysis.setConfidence(0.5);
             errorAnalysis.setReasoning("File is null or empty");
             errorAnalysis.setRecommendation("Please select a valid file to upload.");
-            return Mono.just(ResponseEntity.badRequest().body(errorAnalysis));
+            return ResponseEntity.badRequest().body(errorAnalysis);
         }
         
-        log.info("Analyzing task with file: id={}, title={}, filename={}, size={}", 
+        log.info("Queueing analysis for task with file: id={}, title={}, filename={}, size={}", 
                 taskId, title, file.getOriginalFilename(), file.getSize());
         
+        StoredFile stored;
         try {
-            byte[] fileBytes = file.getBytes();
-            log.info("File uploaded: {} bytes, filename: {}", fileBytes.length, file.getOriginalFilename());
-            // CPU-friendly mode: No need to encode to base64 or analyze with AI
-            String base64Image = ""; // Not used in CPU-friendly mode
-            
-            return taskAnalysisService.analyzeTaskWithFile(taskId, title, description, base64Image, fileUrl)
-                .map(ResponseEntity::ok)
-                .doOnSuccess(result -> log.info("File analysis completed successfully for task: {}", taskId))
-                .onErrorResume(error -> {
-                    log.error("Error analyzing file: {}", error.getMessage(), error);
-                    TaskAnalysis errorAnalysis = new TaskAnalysis();
-                    errorAnalysis.setTaskId(taskId);
-                    errorAnalysis.setTaskTitle(title);
-                    errorAnalysis.setTaskDescription(description);
-                    errorAnalysis.setMarkedCompleted(false);
-                    errorAnalysis.setActuallyCompleted(false);
-                    errorAnalysis.setConfidence(0.5);
-                    errorAnalysis.setReasoning("Unable to analyze file: " + error.getMessage());
-                    errorAnalysis.setRecommendation("Please verify task completion manually.");
-                    return Mono.just(ResponseEntity.ok(errorAnalysis));
-                });
-        } catch (Exception e) {
-            log.error("Error processing file: {}", e.getMessage(), e);
+            stored = fileStore.store(file);
+        } catch (IOException e) {
+            log.error("Error storing file: {}", e.getMessage(), e);
             TaskAnalysis errorAnalysis = new TaskAnalysis();
             errorAnalysis.setTaskId(taskId);
             errorAnalysis.setTaskTitle(title);
@@ -150,8 +166,83 @@ public class AgentController {
             errorAnalysis.setConfidence(0.5);
             errorAnalysis.setReasoning("Error processing file: " + e.getMessage());
             errorAnalysis.setRecommendation("Please try uploading the file again.");
-            return Mono.just(ResponseEntity.ok(errorAnalysis));
+            return ResponseEntity.internalServerError().body(errorAnalysis);
+        }
+        log.info("Stored upload for task {} as {} ({} bytes)", taskId, stored.hash(), stored.size());
+        
+        AnalysisJob job = new AnalysisJob();
+        job.setTaskId(taskId);
+        job.setTitle(title);
+        job.setDescription(description);
+        // The stored copy is what the task links to; the client-supplied path is not served anywhere
+        job.setFileUrl(FILES_PATH + stored.hash() + extensionOf(file.getOriginalFilename()));
+        job.setFileHash(stored.hash());
+        job.setFilename(file.getOriginalFilename());
+        job.setFileSize(stored.size());
+        
+        return analysisJobService.submit(job)
+            .<ResponseEntity<?>>map(queued -> {
+                analysisJobWorker.wakeUp();
+                return ResponseEntity.accepted()
+                    .location(URI.create("/api/agent/jobs/" + queued.getId()))
+                    .body(queued);
+            })
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(QUEUE_FULL_RETRY_AFTER_SECONDS))
+                .body(Map.of("error", "Analysis queue is full, please retry shortly")));
+    }
+    
+    // Serves a stored upload; {name} is the content hash, optionally followed by the original extension
+    @GetMapping("/files/{name:.+}")
+    public ResponseEntity<Resource> getFile(@PathVariable String name) {
+        int dot = name.indexOf('.');
+        String hash = dot == -1 ? name : name.substring(0, dot);
+        return fileStore.resolve(hash)
+            .map(path -> ResponseEntity.ok()
+                .contentType(MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                // Content-addressed: the bytes behind a URL never change
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .<Resource>body(new FileSystemResource(path)))
+            .orElse(ResponseEntity.notFound().build());
+    }
+    
+    // Body is a JSON array of task ids; answers the latest job status of each task that has one
+    @PostMapping("/jobs/latest")
+    public List<AnalysisJobSummary> getLatestJobs(@RequestBody List<String> taskIds) {
+        if (taskIds.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "At most " + maxBatchSize + " task ids per request");
         }
+        return taskIds.isEmpty() ? List.of() : analysisJobService.latestByTask(taskIds);
+    }
+    
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<AnalysisJob> getJob(@PathVariable String id) {
+        return analysisJobService.findById(id)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+    
+    // Server-sent events: "token" chunks, "field" values as they are parsed, then the final "result"
+    @GetMapping(value = "/analyze/{taskId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<AnalysisStreamEvent>>> analyzeTaskStream(
+            @PathVariable String taskId,
+            @RequestParam String title,
+            @RequestParam(required = false) String description,
+            @RequestParam(defaultValue = "false") boolean completed) {
+        
+        log.info("Streaming analysis for task: id={}, title={}, completed={}", taskId, title, completed);
+        ollamaAdmission.checkTextCapacity();
+        
+        Flux<ServerSentEvent<AnalysisStreamEvent>> events = taskAnalysisService.streamAnalysis(taskId, title, description, completed)
+            .map(event -> ServerSentEvent.builder(event).event(event.getType()).build())
+            .onErrorResume(error -> {
+                log.error("Error streaming analysis: {}", error.getMessage());
+                AnalysisStreamEvent failure = new AnalysisStreamEvent("error", null, "Unable to analyze task: " + error.getMessage(), null);
+                return Flux.just(ServerSentEvent.builder(failure).event("error").build());
+            });
+        // Tells nginx in front of the gateway not to buffer the stream
+        return ResponseEntity.ok().header("X-Accel-Buffering", "no").body(events);
     }
     
     @GetMapping("/analyze/{taskId}")
@@ -165,7 +256,7 @@ public class AgentController {
         
         return taskAnalysisService.analyzeTask(taskId, title, description, completed)
             .map(ResponseEntity::ok)
-            .onErrorResume(error -> {
+            .onErrorResume(error -> !(error instanceof OllamaOverloadedException), error -> {
                 log.error("Error analyzing task: {}", error.getMessage());
                 TaskAnalysis errorAnalysis = new TaskAnalysis();
                 errorAnalysis.setTaskId(taskId);
@@ -179,5 +270,21 @@ public class AgentController {
                 return Mono.just(ResponseEntity.ok(errorAnalysis));
             });
     }
+    
+    // Ollama is at capacity: shed the request quickly and tell the client when to come back
+    @ExceptionHandler(OllamaOverloadedException.class)
+    public ResponseEntity<Map<String, String>> overloaded(OllamaOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+            .body(Map.of("error", e.getMessage()));
+    }
+    
+    private String extensionOf(String filename) {
+        if (filename == null) {
+            return "";
+        }
+        int dot = filename.lastIndexOf('.');
+        String extension = dot == -1 ? "" : filename.substring(dot);
+        return extension.matches("\\.[A-Za-z0-9]{1,10}") ? extension.toLowerCase() : "";
+    }
 }
-
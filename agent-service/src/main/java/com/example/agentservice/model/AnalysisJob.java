@@ -0,0 +1,44 @@
+package com.example.agentservice.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import java.time.Instant;
+
+@Data
+@Document(collection = "analysis_jobs")
+// Workers claim the oldest job of a status, so the queue is read through (status, createdAt);
+// dashboards ask for the latest job of each task through (taskId, createdAt)
+@CompoundIndexes({
+    @CompoundIndex(name = "status_createdAt", def = "{'status': 1, 'createdAt': 1}"),
+    @CompoundIndex(name = "taskId_createdAt", def = "{'taskId': 1, 'createdAt': -1}")
+})
+public class AnalysisJob {
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    private String id;
+    private String taskId;
+    private String title;
+    private String description;
+    private String fileUrl; // URL/path the student's file can be fetched from
+    private String fileHash; // SHA-256 of the upload in the agent-service file store
+    private String filename; // Original name of the uploaded file
+    private long fileSize;
+    private String status; // QUEUED, RUNNING, SUCCEEDED or FAILED
+    private int attempts; // How many times a worker has claimed the job
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private Instant leaseUntil; // A RUNNING job whose lease expired is put back in the queue
+    @JsonIgnore
+    private String claimToken; // Set per claim; only the worker holding it may record the outcome
+    private TaskAnalysis result;
+    private String error;
+}
@@ -0,0 +1,15 @@
+package com.example.agentservice.model;
+
+import lombok.Data;
+import java.time.Instant;
+
+// Status of the most recent analysis job of a task, without the job's inputs or result
+@Data
+public class AnalysisJobSummary {
+    private String taskId;
+    private String jobId;
+    private String status; // QUEUED, RUNNING, SUCCEEDED or FAILED
+    private Instant createdAt;
+    private Instant finishedAt;
+    private String error;
+}
@@ -0,0 +1,15 @@
+package com.example.agentservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalysisStreamEvent {
+    private String type; // "token", "field", "result", or "error" if the stream failed
+    private String field; // For "field": COMPLETED, CONFIDENCE, REASONING or RECOMMENDATION
+    private String value; // Token text, the parsed field value, or the error message
+    private TaskAnalysis analysis; // For "result": the final analysis
+}
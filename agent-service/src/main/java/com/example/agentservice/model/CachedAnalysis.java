@@ -0,0 +1,22 @@
+package com.example.agentservice.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "analysis_cache")
+public class CachedAnalysis {
+    @Id
+    private String key; // model + prompt hash + file content hash, see AnalysisCache.key
+    private String model;
+    private String response; // Raw model output, parsed again on every hit
+    @Indexed(expireAfter = "30d") // Mongo TTL index removes stale entries
+    private Instant createdAt;
+}
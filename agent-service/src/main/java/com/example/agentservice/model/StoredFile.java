@@ -0,0 +1,9 @@
+package com.example.agentservice.model;
+
+import java.nio.file.Path;
+
+/**
+ * A file in the content-addressed store: {@code hash} is the hex SHA-256 of its bytes.
+ */
+public record StoredFile(String hash, long size, Path path) {
+}
@@ -0,0 +1,14 @@
+package com.example.agentservice.model;
+
+import lombok.Data;
+
+// One task of a batch analysis request; mirrors the body accepted by POST /api/agent/analyze
+@Data
+public class TaskAnalysisRequest {
+    private String id;
+    private String title;
+    private String description;
+    private boolean completed;
+    private boolean fileUploaded;
+    private boolean taskDone;
+}
@@ -0,0 +1,29 @@
+package com.example.agentservice.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A task-service update that could not be delivered and is waiting to be replayed. There is at most
+ * one entry per task: later updates for the same task are merged into it, so replay keeps their order.
+ */
+@Data
+@Document(collection = "task_update_outbox")
+public class TaskUpdateOutboxEntry {
+    @Id
+    private String id;
+    @Indexed(unique = true)
+    private String taskId;
+    private Map<String, Object> changes; // Fields for PATCH /api/tasks/{id}
+    private long revision; // Bumped on every merge, so a replay only deletes what it actually sent
+    private int attempts;
+    @Indexed
+    private Instant nextAttemptAt;
+    private String lastError;
+    private Instant createdAt;
+}
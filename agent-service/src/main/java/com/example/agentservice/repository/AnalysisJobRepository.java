@@ -0,0 +1,8 @@
+package com.example.agentservice.repository;
+
+import com.example.agentservice.model.AnalysisJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface AnalysisJobRepository extends MongoRepository<AnalysisJob, String> {
+    long countByStatus(String status);
+}
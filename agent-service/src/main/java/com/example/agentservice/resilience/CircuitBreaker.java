@@ -0,0 +1,215 @@
+package com.example.agentservice.resilience;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Predicate;
+
+/**
+ * Count-based circuit breaker. While CLOSED it keeps the outcome of the last {@code windowSize} calls
+ * and opens once at least {@code minimumCalls} were made and the failure rate reaches
+ * {@code failureRateThreshold}. While OPEN calls fail immediately with {@link CircuitOpenException}.
+ * After {@code openDuration} it goes HALF_OPEN and lets {@code halfOpenCalls} trial calls through:
+ * if they all succeed it closes, the first failure opens it again.
+ *
+ * <p>Only errors matching {@code recordedFailure} count; a cancelled call counts as nothing.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+    private final Predicate<Throwable> recordedFailure;
+    private final Clock clock;
+
+    private final boolean[] outcomes;
+    private int recorded;
+    private int next;
+    private int failures;
+    private State state = State.CLOSED;
+    private Instant openUntil;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration openDuration, int halfOpenCalls, Predicate<Throwable> recordedFailure) {
+        this(name, windowSize, minimumCalls, failureRateThreshold, openDuration, halfOpenCalls, recordedFailure, Clock.systemUTC());
+    }
+
+    CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                   Duration openDuration, int halfOpenCalls, Predicate<Throwable> recordedFailure, Clock clock) {
+        this.name = name;
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.recordedFailure = recordedFailure;
+        this.clock = clock;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    public <T> Mono<T> execute(Mono<T> call) {
+        return Mono.defer(() -> {
+            Permission permission = acquire();
+            return call
+                .doOnSuccess(value -> permission.success())
+                .doOnError(permission::error)
+                .doOnCancel(permission::cancel);
+        });
+    }
+
+    public <T> Flux<T> execute(Flux<T> call) {
+        return Flux.defer(() -> {
+            Permission permission = acquire();
+            return call
+                .doOnComplete(permission::success)
+                .doOnError(permission::error)
+                .doOnCancel(permission::cancel);
+        });
+    }
+
+    // True unless the breaker would reject a call right now
+    public synchronized boolean allowsCalls() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> !clock.instant().isBefore(openUntil);
+            case HALF_OPEN -> trialsStarted < halfOpenCalls;
+        };
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && !clock.instant().isBefore(openUntil)) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private synchronized Permission acquire() {
+        if (state == State.OPEN) {
+            if (clock.instant().isBefore(openUntil)) {
+                throw new CircuitOpenException(name);
+            }
+            state = State.HALF_OPEN;
+            trialsStarted = 0;
+            trialsSucceeded = 0;
+            log.info("Circuit breaker '{}' half-open, letting {} trial call(s) through", name, halfOpenCalls);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= halfOpenCalls) {
+                throw new CircuitOpenException(name);
+            }
+            trialsStarted++;
+            return new Permission(true);
+        }
+        return new Permission(false);
+    }
+
+    private synchronized void onSuccess(boolean trial) {
+        if (trial) {
+            if (state == State.HALF_OPEN && ++trialsSucceeded >= halfOpenCalls) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    private synchronized void onFailure(boolean trial) {
+        if (trial) {
+            if (state == State.HALF_OPEN) {
+                open();
+            }
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+                open();
+            }
+        }
+    }
+
+    private synchronized void onCancel(boolean trial) {
+        // An abandoned trial frees its slot so the next caller can probe
+        if (trial && state == State.HALF_OPEN) {
+            trialsStarted--;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (recorded == windowSize) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % windowSize;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = clock.instant().plus(openDuration);
+        log.warn("Circuit breaker '{}' opened for {}", name, openDuration);
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+        log.info("Circuit breaker '{}' closed", name);
+    }
+
+    private final class Permission {
+        private final boolean trial;
+        private boolean done;
+
+        Permission(boolean trial) {
+            this.trial = trial;
+        }
+
+        void success() {
+            if (finish()) {
+                onSuccess(trial);
+            }
+        }
+
+        void error(Throwable error) {
+            if (finish()) {
+                if (recordedFailure.test(error)) {
+                    onFailure(trial);
+                } else {
+                    onSuccess(trial);
+                }
+            }
+        }
+
+        void cancel() {
+            if (finish()) {
+                onCancel(trial);
+            }
+        }
+
+        private synchronized boolean finish() {
+            if (done) {
+                return false;
+            }
+            done = true;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.agentservice.resilience;
+
+/**
+ * Thrown instead of making a call while a {@link CircuitBreaker} is open.
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String name) {
+        super("Circuit breaker '" + name + "' is open");
+    }
+}
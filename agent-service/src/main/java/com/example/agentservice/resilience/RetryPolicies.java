@@ -0,0 +1,71 @@
+package com.example.agentservice.resilience;
+
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * Failure classification and retry specs shared by the outbound clients.
+ */
+public final class RetryPolicies {
+
+    private RetryPolicies() {
+    }
+
+    // The request never got an answer (connection refused/reset, or no response in time)
+    public static boolean isConnectionFailure(Throwable error) {
+        return error instanceof WebClientRequestException || error instanceof TimeoutException;
+    }
+
+    // Worth retrying: connection failures and the gateway/overload statuses
+    public static boolean isTransient(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status == 502 || status == 503 || status == 504;
+        }
+        return isConnectionFailure(error);
+    }
+
+    /**
+     * Narrower than {@link #isTransient}: the dependency could not be reached, or answered 502/503. A
+     * timeout is left out, since for a slow dependency such as a CPU-bound model it means overload, and
+     * repeating the call only adds load.
+     */
+    public static boolean isUnavailable(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status == 502 || status == 503;
+        }
+        return error instanceof WebClientRequestException && !(error.getCause() instanceof io.netty.handler.timeout.TimeoutException);
+    }
+
+    // Counts against a dependency's circuit breaker: anything but a 4xx, which is the caller's fault
+    public static boolean isDependencyFailure(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError();
+        }
+        return !(error instanceof CircuitOpenException);
+    }
+
+    /**
+     * Exponential backoff with 50% jitter, so callers that failed together do not retry in lockstep.
+     * Only for idempotent calls.
+     */
+    public static RetryBackoffSpec jitteredBackoff(int maxRetries, Duration minBackoff, Duration maxBackoff) {
+        return jitteredBackoff(maxRetries, minBackoff, maxBackoff, RetryPolicies::isTransient);
+    }
+
+    public static RetryBackoffSpec jitteredBackoff(int maxRetries, Duration minBackoff, Duration maxBackoff,
+                                                   Predicate<Throwable> retryable) {
+        return Retry.backoff(maxRetries, minBackoff)
+                .maxBackoff(maxBackoff)
+                .jitter(0.5)
+                .filter(retryable)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.agentservice.service;
+
+import com.example.agentservice.model.CachedAnalysis;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Caches raw model responses by (model, prompt hash, file content hash) so repeated uploads and
+ * repeated prompts skip inference. Concurrent requests for the same key share one in-flight call,
+ * failed calls are not cached, and an optional Mongo tier keeps results across restarts.
+ */
+@Service
+@Slf4j
+public class AnalysisCache {
+
+    private final AsyncCache<String, String> responses;
+    private final MongoTemplate mongoTemplate;
+    private final boolean persistent;
+
+    public AnalysisCache(MongoTemplate mongoTemplate,
+                         @Value("${agent.analysis-cache.max-entries:1000}") long maxEntries,
+                         @Value("${agent.analysis-cache.ttl:PT6H}") Duration ttl,
+                         @Value("${agent.analysis-cache.persistent:false}") boolean persistent) {
+        this.mongoTemplate = mongoTemplate;
+        this.persistent = persistent;
+        // Size-bounded LRU-style eviction plus expiry; a failed future is dropped from the cache automatically
+        this.responses = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttl).buildAsync();
+    }
+
+    public static String key(String model, String prompt, String fileHash) {
+        return model + ":" + sha256(prompt) + ":" + (fileHash == null ? "-" : fileHash);
+    }
+
+    public Mono<String> get(String model, String prompt, String fileHash, Supplier<Mono<String>> inference) {
+        String key = key(model, prompt, fileHash);
+        // The future is shared by every caller asking for the key until it completes
+        return Mono.fromFuture(() -> responses.get(key, (k, executor) -> load(k, model, inference).toFuture()), true);
+    }
+
+    // Completed in-memory entry only; an in-flight call for the key does not count
+    public Optional<String> getIfPresent(String model, String prompt, String fileHash) {
+        CompletableFuture<String> future = responses.getIfPresent(key(model, prompt, fileHash));
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(future.getNow(null));
+    }
+
+    // For responses obtained outside get(), e.g. assembled from a token stream
+    public void put(String model, String prompt, String fileHash, String response) {
+        responses.put(key(model, prompt, fileHash), CompletableFuture.completedFuture(response));
+    }
+
+    private Mono<String> load(String key, String model, Supplier<Mono<String>> inference) {
+        if (!persistent) {
+            return inference.get();
+        }
+        return Mono.fromCallable(() -> mongoTemplate.findById(key, CachedAnalysis.class))
+            .subscribeOn(Schedulers.boundedElastic())
+            .map(CachedAnalysis::getResponse)
+            .doOnNext(response -> log.debug("Analysis cache hit in Mongo for {}", key))
+            .switchIfEmpty(Mono.defer(inference)
+                .flatMap(response -> Mono.fromRunnable(() -> mongoTemplate.save(new CachedAnalysis(key, model, response, Instant.now())))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .onErrorResume(error -> {
+                        log.warn("Could not persist analysis for {}: {}", key, error.getMessage());
+                        return Mono.empty();
+                    })
+                    .thenReturn(response)));
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
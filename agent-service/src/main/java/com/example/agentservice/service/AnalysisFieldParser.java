@@ -0,0 +1,61 @@
+package com.example.agentservice.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incrementally picks the "FIELD: value" lines of the analysis format out of a token stream.
+ * A field is reported once its line is complete, i.e. once a newline follows it or the stream ends.
+ * Not thread-safe; use one instance per stream.
+ */
+public class AnalysisFieldParser {
+
+    public static final List<String> FIELDS = List.of("COMPLETED", "CONFIDENCE", "REASONING", "RECOMMENDATION");
+
+    private final StringBuilder text = new StringBuilder();
+    private final Map<String, String> parsed = new LinkedHashMap<>();
+    private int lineStart;
+
+    // Appends a chunk and returns the fields whose lines were completed by it
+    public Map<String, String> accept(String chunk) {
+        text.append(chunk);
+        Map<String, String> completed = new LinkedHashMap<>();
+        int newline;
+        while ((newline = text.indexOf("\n", lineStart)) != -1) {
+            parseLine(text.substring(lineStart, newline), completed);
+            lineStart = newline + 1;
+        }
+        return completed;
+    }
+
+    // Parses the trailing line once the stream has ended without a final newline
+    public Map<String, String> finish() {
+        Map<String, String> completed = new LinkedHashMap<>();
+        if (lineStart < text.length()) {
+            parseLine(text.substring(lineStart), completed);
+            lineStart = text.length();
+        }
+        return completed;
+    }
+
+    public boolean isComplete() {
+        return parsed.keySet().containsAll(FIELDS);
+    }
+
+    public String getText() {
+        return text.toString();
+    }
+
+    private void parseLine(String line, Map<String, String> completed) {
+        String trimmed = line.trim();
+        for (String field : FIELDS) {
+            if (!parsed.containsKey(field) && trimmed.toUpperCase().startsWith(field + ":")) {
+                String value = trimmed.substring(field.length() + 1).trim();
+                parsed.put(field, value);
+                completed.put(field, value);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.agentservice.service;
+
+import com.example.agentservice.model.AnalysisJob;
+import com.example.agentservice.model.AnalysisJobSummary;
+import com.example.agentservice.model.TaskAnalysis;
+import com.example.agentservice.repository.AnalysisJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Persistent queue of file analysis jobs. Jobs live in Mongo so queued work survives restarts and
+ * can be claimed by any agent-service replica; claiming is a single findAndModify. Each claim gets a
+ * fresh token, and outcomes are only recorded while the job is still RUNNING under that token, so a
+ * worker whose lease expired cannot overwrite the result of the worker that took the job over.
+ */
+@Service
+@Slf4j
+public class AnalysisJobService {
+
+    private final AnalysisJobRepository jobRepository;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${agent.jobs.max-queued:500}")
+    private long maxQueued;
+
+    @Value("${agent.jobs.lease:PT5M}")
+    private Duration lease;
+
+    @Value("${agent.jobs.max-attempts:3}")
+    private int maxAttempts;
+
+    public AnalysisJobService(AnalysisJobRepository jobRepository, MongoTemplate mongoTemplate) {
+        this.jobRepository = jobRepository;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Queues a job, or returns empty when the queue is full so the caller can shed load.
+     */
+    public Optional<AnalysisJob> submit(AnalysisJob job) {
+        if (jobRepository.countByStatus(AnalysisJob.QUEUED) >= maxQueued) {
+            log.warn("Analysis queue is full ({} jobs), rejecting job for task {}", maxQueued, job.getTaskId());
+            return Optional.empty();
+        }
+        job.setStatus(AnalysisJob.QUEUED);
+        job.setCreatedAt(Instant.now());
+        AnalysisJob saved = jobRepository.save(job);
+        log.info("Queued analysis job {} for task {}", saved.getId(), saved.getTaskId());
+        return Optional.of(saved);
+    }
+
+    public Optional<AnalysisJob> findById(String id) {
+        return jobRepository.findById(id);
+    }
+
+    // Latest job of each given task, in one aggregation over the taskId_createdAt index
+    public List<AnalysisJobSummary> latestByTask(Collection<String> taskIds) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("taskId").in(taskIds)),
+                Aggregation.sort(Sort.by(Sort.Order.asc("taskId"), Sort.Order.desc("createdAt"))),
+                Aggregation.group("taskId")
+                        .first("_id").as("jobId")
+                        .first("status").as("status")
+                        .first("createdAt").as("createdAt")
+                        .first("finishedAt").as("finishedAt")
+                        .first("error").as("error"),
+                Aggregation.project("jobId", "status", "createdAt", "finishedAt", "error").and("_id").as("taskId"));
+        return mongoTemplate.aggregate(aggregation, AnalysisJob.class, AnalysisJobSummary.class).getMappedResults();
+    }
+
+    // Atomically moves the oldest queued job with attempts left to RUNNING and returns it, or null if there is none
+    public AnalysisJob claimNext() {
+        Instant now = Instant.now();
+        Query query = new Query(Criteria.where("status").is(AnalysisJob.QUEUED).and("attempts").lt(maxAttempts))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt"));
+        Update update = new Update()
+                .set("status", AnalysisJob.RUNNING)
+                .set("startedAt", now)
+                .set("leaseUntil", now.plus(lease))
+                .set("claimToken", UUID.randomUUID().toString())
+                .inc("attempts", 1);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), AnalysisJob.class);
+    }
+
+    public void succeed(AnalysisJob job, TaskAnalysis result) {
+        record(job, new Update().set("status", AnalysisJob.SUCCEEDED).set("result", result)
+                .set("finishedAt", Instant.now()).unset("error"), "succeeded");
+    }
+
+    // Re-queues the job while it has attempts left, otherwise marks it FAILED
+    public void fail(AnalysisJob job, String error) {
+        boolean retry = job.getAttempts() < maxAttempts;
+        Update update = new Update().set("error", error)
+                .set("status", retry ? AnalysisJob.QUEUED : AnalysisJob.FAILED);
+        if (!retry) {
+            update.set("finishedAt", Instant.now());
+        }
+        if (record(job, update, "failed")) {
+            log.warn("Analysis job {} failed (attempt {}): {}{}", job.getId(), job.getAttempts(), error, retry ? ", re-queued" : "");
+        }
+    }
+
+    // Marks the job FAILED without retrying, for errors another attempt cannot fix
+    public void failPermanently(AnalysisJob job, String error) {
+        if (record(job, new Update().set("status", AnalysisJob.FAILED).set("error", error).set("finishedAt", Instant.now()), "failed")) {
+            log.warn("Analysis job {} failed: {}", job.getId(), error);
+        }
+    }
+
+    // Puts the job back without counting the attempt, for work shed before it reached the model
+    public void retryLater(AnalysisJob job, String reason) {
+        if (record(job, new Update().set("status", AnalysisJob.QUEUED).inc("attempts", -1), "deferred")) {
+            log.info("Analysis job {} deferred: {}", job.getId(), reason);
+        }
+    }
+
+    // Fails expired jobs that have used up their attempts and puts the others back in the queue
+    public long requeueExpired() {
+        Instant now = Instant.now();
+        Criteria expired = Criteria.where("status").is(AnalysisJob.RUNNING).and("leaseUntil").lt(now);
+        long failed = mongoTemplate.updateMulti(new Query(new Criteria().andOperator(expired, Criteria.where("attempts").gte(maxAttempts))),
+                new Update().set("status", AnalysisJob.FAILED).set("error", "Lease expired on the last attempt")
+                        .set("finishedAt", now).unset("leaseUntil").unset("claimToken"),
+                AnalysisJob.class).getModifiedCount();
+        long requeued = mongoTemplate.updateMulti(new Query(expired),
+                new Update().set("status", AnalysisJob.QUEUED).unset("leaseUntil").unset("claimToken"),
+                AnalysisJob.class).getModifiedCount();
+        if (failed > 0 || requeued > 0) {
+            log.warn("Analysis jobs with expired leases: {} re-queued, {} failed after {} attempts", requeued, failed, maxAttempts);
+        }
+        return requeued;
+    }
+
+    // Applies the outcome only while this claim still owns the job; false if the lease was lost meanwhile
+    private boolean record(AnalysisJob job, Update update, String outcome) {
+        Query owned = new Query(Criteria.where("_id").is(job.getId())
+                .and("status").is(AnalysisJob.RUNNING)
+                .and("claimToken").is(job.getClaimToken()));
+        update.unset("leaseUntil").unset("claimToken");
+        if (mongoTemplate.updateFirst(owned, update, AnalysisJob.class).getMatchedCount() == 0) {
+            log.warn("Analysis job {} {} after its lease was lost; the outcome is discarded", job.getId(), outcome);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.agentservice.service;
+
+import com.example.agentservice.model.AnalysisJob;
+import com.example.agentservice.model.StoredFile;
+import com.example.agentservice.model.TaskAnalysis;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the analysis job queue with at most {@code agent.jobs.concurrency} jobs in flight, so
+ * upload bursts queue up in Mongo instead of holding servlet threads open.
+ */
+@Service
+@Slf4j
+public class AnalysisJobWorker {
+
+    private final AnalysisJobService jobService;
+    private final TaskAnalysisService taskAnalysisService;
+    private final FileStore fileStore;
+    private final Environment environment;
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private Executor workers;
+    private Semaphore slots;
+
+    @Value("${agent.jobs.concurrency:2}")
+    private int concurrency;
+
+    @Value("${agent.jobs.timeout:PT2M}")
+    private Duration jobTimeout;
+
+    public AnalysisJobWorker(AnalysisJobService jobService, TaskAnalysisService taskAnalysisService, FileStore fileStore,
+                             Environment environment) {
+        this.jobService = jobService;
+        this.taskAnalysisService = taskAnalysisService;
+        this.fileStore = fileStore;
+        this.environment = environment;
+    }
+
+    @PostConstruct
+    private void init() {
+        slots = new Semaphore(concurrency);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            // spring.threads.virtual.enabled on Java 21+: the semaphore still bounds concurrency
+            workers = new VirtualThreadTaskExecutor("analysis-worker-");
+            return;
+        }
+        workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "analysis-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        if (workers instanceof ExecutorService pool) {
+            pool.shutdown();
+        }
+    }
+
+    // Called after a submit so a new job does not wait for the next poll
+    public void wakeUp() {
+        drain();
+    }
+
+    @Scheduled(fixedDelayString = "${agent.jobs.poll-interval-ms:1000}")
+    public void poll() {
+        jobService.requeueExpired();
+        drain();
+    }
+
+    private void drain() {
+        while (slots.tryAcquire()) {
+            AnalysisJob job;
+            try {
+                job = jobService.claimNext();
+            } catch (RuntimeException e) {
+                slots.release();
+                log.error("Could not claim analysis job: {}", e.getMessage());
+                return;
+            }
+            if (job == null) {
+                slots.release();
+                return;
+            }
+            workers.execute(() -> {
+                try {
+                    run(job);
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+    }
+
+    private void run(AnalysisJob job) {
+        log.info("Running analysis job {} for task {} (attempt {})", job.getId(), job.getTaskId(), job.getAttempts());
+        try {
+            StoredFile file = fileStore.find(job.getFileHash()).orElse(null);
+            if (job.getFileHash() != null && file == null) {
+                // Lost with the file store (e.g. an ephemeral volume); analysing without it would mislead
+                jobService.failPermanently(job, "Uploaded file " + job.getFileHash() + " is no longer stored, please upload it again");
+                return;
+            }
+            TaskAnalysis analysis = taskAnalysisService
+                    .analyzeTaskWithFile(job.getTaskId(), job.getTitle(), job.getDescription(), file, job.getFileUrl())
+                    .block(jobTimeout);
+            jobService.succeed(job, analysis);
+            log.info("Analysis job {} finished for task {}", job.getId(), job.getTaskId());
+        } catch (OllamaOverloadedException e) {
+            jobService.retryLater(job, e.getMessage());
+        } catch (RuntimeException e) {
+            jobService.fail(job, e.getMessage());
+        }
+    }
+}
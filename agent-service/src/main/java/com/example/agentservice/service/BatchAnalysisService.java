@@ -0,0 +1,214 @@
+package com.example.agentservice.service;
+
+import com.example.agentservice.model.TaskAnalysis;
+import com.example.agentservice.model.TaskAnalysisRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Analyzes a whole class view in one request. Uploaded or done tasks are answered locally; the rest
+ * are packed into multi-task prompts of bounded size, with at most {@code agent.batch.concurrency}
+ * prompts in flight, so N tasks cost a handful of model calls instead of N.
+ */
+@Service
+@Slf4j
+public class BatchAnalysisService {
+
+    private static final Pattern TASK_HEADER = Pattern.compile("(?im)^\\W*TASK\\s*#?\\s*(\\d{1,4})\\b\\W*");
+
+    private final TaskAnalysisService taskAnalysisService;
+    private final OllamaService ollamaService;
+
+    // When false, tasks without an upload are judged on their status alone, like POST /analyze
+    @Value("${agent.batch.model-analysis:true}")
+    private boolean modelAnalysis;
+
+    @Value("${agent.batch.max-tasks-per-prompt:8}")
+    private int maxTasksPerPrompt;
+
+    @Value("${agent.batch.max-prompt-chars:6000}")
+    private int maxPromptChars;
+
+    @Value("${agent.batch.concurrency:2}")
+    private int concurrency;
+
+    public BatchAnalysisService(TaskAnalysisService taskAnalysisService, OllamaService ollamaService) {
+        this.taskAnalysisService = taskAnalysisService;
+        this.ollamaService = ollamaService;
+    }
+
+    // Results are returned in the order of the request
+    public Mono<List<TaskAnalysis>> analyze(List<TaskAnalysisRequest> tasks) {
+        TaskAnalysis[] results = new TaskAnalysis[tasks.size()];
+        List<Integer> pending = new ArrayList<>();
+        List<String> toMarkDone = new ArrayList<>();
+
+        for (int i = 0; i < tasks.size(); i++) {
+            TaskAnalysisRequest task = tasks.get(i);
+            if (task.isFileUploaded() || task.isTaskDone()) {
+                results[i] = taskAnalysisService.uploadedAnalysis(task.getId(), task.getTitle(), task.getDescription(), task.isCompleted());
+                if (!task.isTaskDone() && task.getId() != null) {
+                    toMarkDone.add(task.getId());
+                }
+            } else if (!modelAnalysis) {
+                results[i] = taskAnalysisService.statusAnalysis(task.getId(), task.getTitle(), task.getDescription(), task.isCompleted());
+            } else {
+                pending.add(i);
+            }
+        }
+
+        List<List<Integer>> packs = pack(tasks, pending);
+        log.info("Batch analysis of {} tasks: {} answered locally, {} prompts for the remaining {}",
+                tasks.size(), tasks.size() - pending.size(), packs.size(), pending.size());
+
+        Mono<Void> updates = Flux.fromIterable(toMarkDone)
+            .flatMap(taskId -> taskAnalysisService.updateTaskInMongoDB(taskId, true, null, null)
+                .onErrorResume(error -> {
+                    log.error("Error updating task {}: {}", taskId, error.getMessage());
+                    return Mono.empty();
+                }), concurrency)
+            .then();
+
+        Mono<Void> analyses = Flux.fromIterable(packs)
+            .flatMap(pack -> analyzePack(tasks, pack, true), concurrency)
+            .doOnNext(answers -> answers.forEach((index, analysis) -> results[index] = analysis))
+            .then();
+
+        return Mono.when(updates, analyses).then(Mono.fromSupplier(() -> Arrays.asList(results)));
+    }
+
+    // Greedy packing in request order, closing a pack when either the task count or the prompt size bound is hit
+    private List<List<Integer>> pack(List<TaskAnalysisRequest> tasks, List<Integer> indexes) {
+        List<List<Integer>> packs = new ArrayList<>();
+        List<Integer> current = new ArrayList<>();
+        int size = 0;
+        for (int index : indexes) {
+            int entrySize = taskEntry(0, tasks.get(index)).length();
+            if (!current.isEmpty() && (current.size() >= maxTasksPerPrompt || size + entrySize > maxPromptChars)) {
+                packs.add(current);
+                current = new ArrayList<>();
+                size = 0;
+            }
+            current.add(index);
+            size += entrySize;
+        }
+        if (!current.isEmpty()) {
+            packs.add(current);
+        }
+        return packs;
+    }
+
+    // Answers are keyed by request index. When the model is down the pack is judged on status alone,
+    // since asking about each task again would only fail more times
+    private Mono<Map<Integer, TaskAnalysis>> analyzePack(List<TaskAnalysisRequest> tasks, List<Integer> pack, boolean reaskSkipped) {
+        Mono<Map<Integer, TaskAnalysis>> answered = pack.size() == 1
+            ? analyzeSingle(pack.get(0), tasks.get(pack.get(0)))
+            : ollamaService.generate(packPrompt(tasks, pack)).flatMap(response -> readSections(tasks, pack, response, reaskSkipped));
+        return answered.onErrorResume(OllamaUnavailableException.class, error -> {
+            log.warn("Ollama unavailable, judging {} batched tasks on their status alone", pack.size());
+            return Mono.just(statusAnalyses(tasks, pack));
+        });
+    }
+
+    private Mono<Map<Integer, TaskAnalysis>> analyzeSingle(int index, TaskAnalysisRequest task) {
+        return ollamaService.generate(taskAnalysisService.buildAnalysisPrompt(task.getTitle(), task.getDescription(), task.isCompleted()))
+            .map(response -> {
+                Map<Integer, TaskAnalysis> answer = new HashMap<>();
+                answer.put(index, parse(task, response));
+                return answer;
+            });
+    }
+
+    private String packPrompt(List<TaskAnalysisRequest> tasks, List<Integer> pack) {
+        StringBuilder prompt = new StringBuilder(
+            "Analyze each of the following tasks and determine if it is actually completed or not.\n\n");
+        for (int j = 0; j < pack.size(); j++) {
+            prompt.append(taskEntry(j + 1, tasks.get(pack.get(j))));
+        }
+        return prompt.append("For every task, answer with its TASK line followed by the four fields:\n")
+            .append("TASK [number]\n")
+            .append("COMPLETED: [YES/NO]\n")
+            .append("CONFIDENCE: [HIGH/MEDIUM/LOW]\n")
+            .append("REASONING: [1-2 sentences]\n")
+            .append("RECOMMENDATION: [1 sentence]")
+            .toString();
+    }
+
+    // Tasks the model skipped are packed again and asked once more; skipped a second time, they get the status rule
+    private Mono<Map<Integer, TaskAnalysis>> readSections(List<TaskAnalysisRequest> tasks, List<Integer> pack, String response,
+                                                          boolean reaskSkipped) {
+        Map<Integer, String> sections = splitSections(response);
+        Map<Integer, TaskAnalysis> answers = new HashMap<>();
+        List<Integer> skipped = new ArrayList<>();
+        for (int j = 0; j < pack.size(); j++) {
+            String section = sections.get(j + 1);
+            if (section == null) {
+                skipped.add(pack.get(j));
+            } else {
+                answers.put(pack.get(j), parse(tasks.get(pack.get(j)), section));
+            }
+        }
+        if (skipped.isEmpty()) {
+            return Mono.just(answers);
+        }
+        if (!reaskSkipped) {
+            answers.putAll(statusAnalyses(tasks, skipped));
+            return Mono.just(answers);
+        }
+        log.info("Model skipped {} of {} batched tasks, asking about them again", skipped.size(), pack.size());
+        return Flux.fromIterable(pack(tasks, skipped))
+            .flatMap(repacked -> analyzePack(tasks, repacked, false), concurrency)
+            .doOnNext(answers::putAll)
+            .then(Mono.fromSupplier(() -> answers));
+    }
+
+    private TaskAnalysis parse(TaskAnalysisRequest task, String response) {
+        return taskAnalysisService.parseAnalysisResponse(task.getId(), task.getTitle(), task.getDescription(), task.isCompleted(), response);
+    }
+
+    private Map<Integer, TaskAnalysis> statusAnalyses(List<TaskAnalysisRequest> tasks, List<Integer> indexes) {
+        Map<Integer, TaskAnalysis> answers = new HashMap<>();
+        for (int index : indexes) {
+            TaskAnalysisRequest task = tasks.get(index);
+            answers.put(index, taskAnalysisService.statusAnalysis(task.getId(), task.getTitle(), task.getDescription(), task.isCompleted()));
+        }
+        return answers;
+    }
+
+    private String taskEntry(int number, TaskAnalysisRequest task) {
+        return String.format("TASK %d\nTitle: %s\nDescription: %s\nMarked as Completed: %s\n\n",
+            number,
+            task.getTitle() != null ? task.getTitle() : "N/A",
+            task.getDescription() != null ? task.getDescription() : "No description",
+            task.isCompleted() ? "Yes" : "No");
+    }
+
+    private Map<Integer, String> splitSections(String response) {
+        Map<Integer, String> sections = new HashMap<>();
+        Matcher matcher = TASK_HEADER.matcher(response);
+        int number = -1;
+        int start = 0;
+        while (matcher.find()) {
+            if (number > 0) {
+                sections.putIfAbsent(number, response.substring(start, matcher.start()));
+            }
+            number = Integer.parseInt(matcher.group(1));
+            start = matcher.end();
+        }
+        if (number > 0) {
+            sections.putIfAbsent(number, response.substring(start));
+        }
+        return sections;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.agentservice.service;
+
+import com.example.agentservice.model.StoredFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store for uploaded files. Uploads are streamed from the multipart part to disk
+ * and hashed through a fixed-size buffer, so memory per upload does not depend on file size.
+ * Identical uploads share one stored copy. The directory must outlive the pod (a persistent volume
+ * in k8s), since queued jobs and task fileUrls refer to stored files by hash.
+ */
+@Service
+@Slf4j
+public class FileStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    @Value("${agent.files.dir:${java.io.tmpdir}/agent-files}")
+    private String rootDir;
+
+    private Path root;
+    private Path incoming;
+
+    @PostConstruct
+    private void init() throws IOException {
+        root = Paths.get(rootDir).toAbsolutePath();
+        incoming = Files.createDirectories(root.resolve("incoming"));
+        log.info("File store at {}", root);
+    }
+
+    public StoredFile store(MultipartFile file) throws IOException {
+        Path temp = Files.createTempFile(incoming, "upload-", ".part");
+        try {
+            // Streamed copy of the part, never buffered whole in memory
+            file.transferTo(temp);
+            String hash = sha256(temp);
+            long size = Files.size(temp);
+            Path target = pathFor(hash);
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Same content uploaded before; keep the existing copy
+                log.debug("File {} already stored", hash);
+            }
+            return new StoredFile(hash, size, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public Optional<StoredFile> find(String hash) {
+        return resolve(hash).map(path -> {
+            try {
+                return new StoredFile(hash, Files.size(path), path);
+            } catch (IOException e) {
+                return null;
+            }
+        });
+    }
+
+    public Optional<Path> resolve(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+        Path path = pathFor(hash);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    // Two-character fan-out keeps directory sizes small
+    private Path pathFor(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private String sha256(Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
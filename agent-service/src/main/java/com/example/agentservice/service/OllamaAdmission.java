@@ -0,0 +1,50 @@
+package com.example.agentservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Admission control in front of Ollama, with separate bulkheads for text and vision calls so a burst
+ * of image analyses cannot starve the (much cheaper) text prompts, and vice versa.
+ */
+@Service
+public class OllamaAdmission {
+
+    private final OllamaBulkhead text;
+    private final OllamaBulkhead vision;
+
+    public OllamaAdmission(
+            OllamaEndpointPool endpoints,
+            @Value("${ollama.admission.text.max-concurrency:4}") int textConcurrency,
+            @Value("${ollama.admission.text.max-queue:50}") int textQueue,
+            @Value("${ollama.admission.text.max-wait:PT20S}") Duration textMaxWait,
+            @Value("${ollama.admission.text.latency-target:PT20S}") Duration textLatencyTarget,
+            @Value("${ollama.admission.vision.max-concurrency:2}") int visionConcurrency,
+            @Value("${ollama.admission.vision.max-queue:20}") int visionQueue,
+            @Value("${ollama.admission.vision.max-wait:PT30S}") Duration visionMaxWait,
+            @Value("${ollama.admission.vision.latency-target:PT45S}") Duration visionLatencyTarget) {
+        // Concurrency limits are per Ollama endpoint, so capacity grows with the pool
+        this.text = new OllamaBulkhead("text", textConcurrency * endpoints.size(), textQueue, textMaxWait, textLatencyTarget);
+        this.vision = new OllamaBulkhead("vision", visionConcurrency * endpoints.size(), visionQueue, visionMaxWait, visionLatencyTarget);
+    }
+
+    OllamaBulkhead text() {
+        return text;
+    }
+
+    OllamaBulkhead vision() {
+        return vision;
+    }
+
+    List<OllamaBulkhead.Stats> stats() {
+        return List.of(text.stats(), vision.stats());
+    }
+
+    // Lets endpoints that commit a response early (SSE) refuse up front instead of failing mid-stream
+    public void checkTextCapacity() {
+        text.checkCapacity();
+    }
+}
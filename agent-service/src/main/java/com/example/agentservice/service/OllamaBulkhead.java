@@ -0,0 +1,248 @@
+package com.example.agentservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limiter for one class of Ollama calls. At most {@code limit} calls run at once, up to
+ * {@code maxQueue} more wait (each for at most {@code maxWait}), and anything beyond that fails
+ * immediately with {@link OllamaOverloadedException}.
+ *
+ * <p>The limit adapts AIMD-style between 1 and {@code maxLimit}: a call that finishes within
+ * {@code latencyTarget} while the bulkhead was saturated raises it by {@code 1/limit}; a slower call,
+ * a timeout or an error multiplies it by {@value #BACKOFF}.
+ */
+@Slf4j
+class OllamaBulkhead {
+
+    private static final double BACKOFF = 0.9;
+    private static final double MIN_LIMIT = 1;
+
+    private final String name;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final Duration maxWait;
+    private final long latencyTargetNanos;
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+    private double limit;
+    private int inFlight;
+    private double averageLatencyNanos;
+
+    OllamaBulkhead(String name, int maxLimit, int maxQueue, Duration maxWait, Duration latencyTarget) {
+        this.name = name;
+        this.maxLimit = Math.max(1, maxLimit);
+        this.maxQueue = maxQueue;
+        this.maxWait = maxWait;
+        this.latencyTargetNanos = latencyTarget.toNanos();
+        this.limit = Math.max(MIN_LIMIT, Math.ceil(this.maxLimit / 2.0));
+        this.averageLatencyNanos = latencyTargetNanos / 2.0;
+    }
+
+    <T> Mono<T> execute(Mono<T> call) {
+        return acquire().flatMap(permit -> call
+            .doOnSuccess(value -> permit.completed())
+            .doOnError(permit::onError)
+            .doFinally(signal -> permit.release()))
+            // A permit that loses a race with cancellation is discarded by the operators instead of delivered
+            .doOnDiscard(Permit.class, Permit::release);
+    }
+
+    <T> Flux<T> execute(Flux<T> call) {
+        return acquire().flatMapMany(permit -> call
+            .doOnError(permit::onError)
+            .doOnComplete(permit::completed)
+            .doFinally(signal -> permit.release()))
+            .doOnDiscard(Permit.class, Permit::release);
+    }
+
+    // True when a new call would have to wait or be rejected
+    synchronized boolean isSaturated() {
+        return inFlight >= (int) limit;
+    }
+
+    // Throws the same rejection a call would get right now if neither a slot nor a queue place is free
+    void checkCapacity() {
+        boolean full;
+        synchronized (this) {
+            full = inFlight >= (int) limit && waiters.size() >= maxQueue;
+        }
+        if (full) {
+            throw overloaded("queue is full");
+        }
+    }
+
+    synchronized Stats stats() {
+        return new Stats(name, (int) limit, maxLimit, inFlight, waiters.size(), maxQueue,
+            Duration.ofNanos((long) averageLatencyNanos));
+    }
+
+    record Stats(String name, int limit, int maxLimit, int inFlight, int queued, int maxQueue, Duration averageLatency) {
+    }
+
+    private Mono<Permit> acquire() {
+        return Mono.<Permit>create(sink -> {
+            Permit granted = null;
+            boolean rejected = false;
+            synchronized (this) {
+                if (waiters.isEmpty() && inFlight < (int) limit) {
+                    granted = grant();
+                } else if (waiters.size() < maxQueue) {
+                    Waiter waiter = new Waiter(sink);
+                    waiters.addLast(waiter);
+                    sink.onCancel(() -> cancel(waiter));
+                    waiter.timer = Schedulers.parallel().schedule(() -> expire(waiter), maxWait.toNanos(), TimeUnit.NANOSECONDS);
+                } else {
+                    rejected = true;
+                }
+            }
+            if (granted != null) {
+                sink.success(granted);
+            } else if (rejected) {
+                sink.error(overloaded("queue is full"));
+            }
+        });
+    }
+
+    // Not a timeout() operator: a permit emitted while that operator times out would be dropped and its slot lost
+    private void expire(Waiter waiter) {
+        synchronized (this) {
+            if (!waiter.state.compareAndSet(Waiter.WAITING, Waiter.CANCELLED)) {
+                return;
+            }
+            waiters.remove(waiter);
+        }
+        waiter.sink.error(overloaded("no slot within " + maxWait.toMillis() + "ms"));
+    }
+
+    // Caller holds the lock
+    private Permit grant() {
+        inFlight++;
+        return new Permit(System.nanoTime(), inFlight >= (int) limit);
+    }
+
+    private void cancel(Waiter waiter) {
+        Permit dropped;
+        // Under the lock, so a GRANTED waiter always has its permit assigned
+        synchronized (this) {
+            if (waiter.state.compareAndSet(Waiter.WAITING, Waiter.CANCELLED)) {
+                waiters.remove(waiter);
+                waiter.timer.dispose();
+                return;
+            }
+            dropped = waiter.state.get() == Waiter.GRANTED ? waiter.permit : null;
+        }
+        if (dropped != null) {
+            // Cancelled between being granted a slot and receiving it
+            dropped.release();
+        }
+    }
+
+    private void release(Permit permit) {
+        List<Waiter> ready = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            if (permit.sampled()) {
+                long latency = System.nanoTime() - permit.startNanos;
+                averageLatencyNanos = 0.8 * averageLatencyNanos + 0.2 * latency;
+                if (latency > latencyTargetNanos) {
+                    decrease();
+                } else if (permit.saturated) {
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+            } else if (permit.failed) {
+                decrease();
+            }
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                Waiter waiter = waiters.pollFirst();
+                if (waiter.state.get() == Waiter.WAITING) {
+                    waiter.permit = grant();
+                    waiter.state.set(Waiter.GRANTED);
+                    waiter.timer.dispose();
+                    ready.add(waiter);
+                }
+            }
+        }
+        ready.forEach(waiter -> waiter.sink.success(waiter.permit));
+    }
+
+    private void decrease() {
+        double previous = limit;
+        limit = Math.max(MIN_LIMIT, limit * BACKOFF);
+        if ((int) limit < (int) previous) {
+            log.info("Ollama {} bulkhead: latency above target, concurrency limit lowered to {}", name, (int) limit);
+        }
+    }
+
+    private OllamaOverloadedException overloaded(String reason) {
+        long retryAfter;
+        synchronized (this) {
+            // Roughly the time for the current queue to drain at the current limit
+            double drainNanos = averageLatencyNanos * (waiters.size() + 1) / Math.max(1, (int) limit);
+            retryAfter = Math.max(1, (long) Math.ceil(drainNanos / 1_000_000_000d));
+        }
+        log.warn("Ollama {} bulkhead rejected a call: {}", name, reason);
+        return new OllamaOverloadedException("Ollama " + name + " capacity exhausted: " + reason, retryAfter);
+    }
+
+    private static final class Waiter {
+        static final int WAITING = 0;
+        static final int GRANTED = 1;
+        static final int CANCELLED = 2;
+
+        final MonoSink<Permit> sink;
+        final AtomicInteger state = new AtomicInteger(WAITING);
+        volatile Permit permit;
+        volatile Disposable timer = Disposables.disposed();
+
+        Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+    }
+
+    private final class Permit {
+        final long startNanos;
+        final boolean saturated;
+        final AtomicBoolean released = new AtomicBoolean();
+        volatile boolean failed;
+        volatile boolean completed;
+
+        Permit(long startNanos, boolean saturated) {
+            this.startNanos = startNanos;
+            this.saturated = saturated;
+        }
+
+        void onError(Throwable error) {
+            failed = true;
+        }
+
+        void completed() {
+            completed = true;
+        }
+
+        // Latency only counts for calls that ran to completion; cancelled streams say nothing about load
+        boolean sampled() {
+            return completed && !failed;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                OllamaBulkhead.this.release(this);
+            }
+        }
+    }
+}
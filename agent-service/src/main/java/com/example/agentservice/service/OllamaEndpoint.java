@@ -0,0 +1,92 @@
+package com.example.agentservice.service;
+
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One Ollama host of the {@link OllamaEndpointPool}, with the routing state kept for it: requests in
+ * flight, models it has loaded, and whether it is currently ejected.
+ */
+class OllamaEndpoint {
+
+    private final String url;
+    private final WebClient client;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong served = new AtomicLong();
+    private final Set<String> warmModels = ConcurrentHashMap.newKeySet();
+    private volatile Instant ejectedUntil;
+    private volatile Instant lastProbe;
+
+    OllamaEndpoint(String url, WebClient client) {
+        this.url = url;
+        this.client = client;
+    }
+
+    String url() {
+        return url;
+    }
+
+    WebClient client() {
+        return client;
+    }
+
+    int outstanding() {
+        return outstanding.get();
+    }
+
+    boolean isWarm(String model) {
+        return warmModels.contains(model);
+    }
+
+    boolean isAvailable(Instant now) {
+        Instant until = ejectedUntil;
+        return until == null || now.isAfter(until);
+    }
+
+    void started() {
+        outstanding.incrementAndGet();
+    }
+
+    void finished() {
+        outstanding.decrementAndGet();
+    }
+
+    void succeeded(String model) {
+        consecutiveFailures.set(0);
+        served.incrementAndGet();
+        warmModels.add(model);
+    }
+
+    // Returns the new count of failures in a row
+    int failed() {
+        return consecutiveFailures.incrementAndGet();
+    }
+
+    void eject(Instant until) {
+        ejectedUntil = until;
+    }
+
+    // A successful probe: the endpoint is back in rotation and its loaded models are known exactly
+    void probed(Set<String> loadedModels, Instant at) {
+        lastProbe = at;
+        ejectedUntil = null;
+        consecutiveFailures.set(0);
+        warmModels.retainAll(loadedModels);
+        warmModels.addAll(loadedModels);
+    }
+
+    Snapshot snapshot(Instant now) {
+        return new Snapshot(url, isAvailable(now), outstanding.get(), served.get(), consecutiveFailures.get(),
+            Set.copyOf(warmModels), ejectedUntil, lastProbe);
+    }
+
+    record Snapshot(String url, boolean available, int outstanding, long served, int consecutiveFailures,
+                    Set<String> warmModels, Instant ejectedUntil, Instant lastProbe) {
+    }
+}
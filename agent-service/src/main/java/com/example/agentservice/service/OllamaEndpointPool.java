@@ -0,0 +1,153 @@
+package com.example.agentservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * The Ollama hosts listed in {@code ollama.url} (comma-separated). Each call goes to the endpoint
+ * with the fewest requests in flight, except that an endpoint which already has the model loaded is
+ * preferred as long as it is at most {@code ollama.routing.affinity-slack} requests busier, so hosts
+ * keep their models warm instead of all of them swapping models.
+ *
+ * <p>Endpoints are ejected for {@code ollama.routing.eject-duration} after
+ * {@code ollama.routing.eject-after-failures} failed calls in a row or a failed probe, and come back
+ * after the next successful probe. Probes call {@code /api/ps}, which also reports the loaded models.
+ */
+@Service
+@Slf4j
+public class OllamaEndpointPool {
+
+    private final List<OllamaEndpoint> endpoints;
+    private final int affinitySlack;
+    private final int ejectAfterFailures;
+    private final Duration ejectDuration;
+    private final Duration probeTimeout;
+
+    public OllamaEndpointPool(
+            WebClient.Builder webClientBuilder,
+            @Value("${ollama.url:http://host.docker.internal:11434}") List<String> urls,
+            @Value("${ollama.routing.affinity-slack:1}") int affinitySlack,
+            @Value("${ollama.routing.eject-after-failures:3}") int ejectAfterFailures,
+            @Value("${ollama.routing.eject-duration:PT30S}") Duration ejectDuration,
+            @Value("${ollama.routing.probe-timeout:PT2S}") Duration probeTimeout) {
+        this.endpoints = urls.stream()
+            .map(String::trim)
+            .filter(url -> !url.isEmpty())
+            .distinct()
+            .map(url -> new OllamaEndpoint(url, webClientBuilder.clone().baseUrl(url).build()))
+            .toList();
+        if (endpoints.isEmpty()) {
+            throw new IllegalStateException("ollama.url must list at least one endpoint");
+        }
+        this.affinitySlack = affinitySlack;
+        this.ejectAfterFailures = ejectAfterFailures;
+        this.ejectDuration = ejectDuration;
+        this.probeTimeout = probeTimeout;
+        log.info("Ollama endpoints: {}", endpoints.stream().map(OllamaEndpoint::url).toList());
+    }
+
+    public int size() {
+        return endpoints.size();
+    }
+
+    <T> Mono<T> execute(String model, Function<OllamaEndpoint, Mono<T>> call) {
+        return Mono.defer(() -> {
+            OllamaEndpoint endpoint = choose(model);
+            endpoint.started();
+            return call.apply(endpoint)
+                .doOnSuccess(value -> endpoint.succeeded(model))
+                .doOnError(error -> recordFailure(endpoint, error))
+                .doFinally(signal -> endpoint.finished());
+        });
+    }
+
+    <T> Flux<T> executeMany(String model, Function<OllamaEndpoint, Flux<T>> call) {
+        return Flux.defer(() -> {
+            OllamaEndpoint endpoint = choose(model);
+            endpoint.started();
+            return call.apply(endpoint)
+                .doOnComplete(() -> endpoint.succeeded(model))
+                .doOnError(error -> recordFailure(endpoint, error))
+                .doFinally(signal -> endpoint.finished());
+        });
+    }
+
+    OllamaEndpoint choose(String model) {
+        Instant now = Instant.now();
+        List<OllamaEndpoint> candidates = endpoints.stream().filter(endpoint -> endpoint.isAvailable(now)).toList();
+        if (candidates.isEmpty()) {
+            // Everything is ejected: better to try than to fail every call until the next probe
+            candidates = endpoints;
+        }
+        Comparator<OllamaEndpoint> byLoad = Comparator.comparingInt(OllamaEndpoint::outstanding);
+        OllamaEndpoint leastLoaded = candidates.stream().min(byLoad).orElseThrow();
+        return candidates.stream()
+            .filter(endpoint -> endpoint.isWarm(model))
+            .min(byLoad)
+            .filter(warm -> warm.outstanding() <= leastLoaded.outstanding() + affinitySlack)
+            .orElse(leastLoaded);
+    }
+
+    // Probes run asynchronously so a hung host never holds up the shared scheduler thread
+    @Scheduled(fixedDelayString = "${ollama.routing.probe-interval-ms:10000}")
+    public void probe() {
+        endpoints.forEach(endpoint -> probe(endpoint).subscribe());
+    }
+
+    private Mono<Void> probe(OllamaEndpoint endpoint) {
+        return endpoint.client().get()
+            .uri("/api/ps")
+            .retrieve()
+            .bodyToMono(JsonNode.class)
+            .timeout(probeTimeout)
+            .doOnNext(body -> {
+                Set<String> loaded = new HashSet<>();
+                body.path("models").forEach(model -> loaded.add(model.path("name").asText()));
+                if (!endpoint.isAvailable(Instant.now())) {
+                    log.info("Ollama endpoint {} is healthy again", endpoint.url());
+                }
+                endpoint.probed(loaded, Instant.now());
+            })
+            .onErrorResume(error -> {
+                if (endpoint.isAvailable(Instant.now())) {
+                    log.warn("Ollama endpoint {} failed its health probe ({}), ejecting", endpoint.url(), error.getMessage());
+                }
+                endpoint.eject(Instant.now().plus(ejectDuration));
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    List<OllamaEndpoint.Snapshot> snapshot() {
+        Instant now = Instant.now();
+        return endpoints.stream().map(endpoint -> endpoint.snapshot(now)).toList();
+    }
+
+    private void recordFailure(OllamaEndpoint endpoint, Throwable error) {
+        // Only failures that say something about the host; a 4xx is the request's fault
+        boolean hostFailure = error instanceof WebClientRequestException
+            || error instanceof TimeoutException
+            || (error instanceof WebClientResponseException response && response.getStatusCode().is5xxServerError());
+        if (hostFailure && endpoint.failed() >= ejectAfterFailures && endpoint.isAvailable(Instant.now())) {
+            log.warn("Ollama endpoint {} failed {} calls in a row, ejecting for {}", endpoint.url(), ejectAfterFailures, ejectDuration);
+            endpoint.eject(Instant.now().plus(ejectDuration));
+        }
+    }
+}
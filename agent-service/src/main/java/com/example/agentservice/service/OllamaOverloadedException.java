@@ -0,0 +1,19 @@
+package com.example.agentservice.service;
+
+/**
+ * Thrown when an Ollama bulkhead sheds a call because its wait queue is full or the wait timed out.
+ * Controllers turn it into a 503 with {@code Retry-After}.
+ */
+public class OllamaOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public OllamaOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.agentservice.service;
+
+import com.example.agentservice.resilience.CircuitBreaker;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/ollama}: per-endpoint routing state (availability, requests in flight, loaded
+ * models), the admission bulkheads' current limits and queues, and the circuit breaker state.
+ */
+@Component
+@Endpoint(id = "ollama")
+public class OllamaRoutingEndpoint {
+
+    private final OllamaEndpointPool endpoints;
+    private final OllamaAdmission admission;
+    private final CircuitBreaker circuitBreaker;
+
+    public OllamaRoutingEndpoint(OllamaEndpointPool endpoints, OllamaAdmission admission,
+                                 @Qualifier("ollamaCircuitBreaker") CircuitBreaker circuitBreaker) {
+        this.endpoints = endpoints;
+        this.admission = admission;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @ReadOperation
+    public Map<String, Object> routing() {
+        List<Map<String, Object>> hosts = endpoints.snapshot().stream().map(endpoint -> {
+            Map<String, Object> host = new LinkedHashMap<>();
+            host.put("url", endpoint.url());
+            host.put("available", endpoint.available());
+            host.put("outstanding", endpoint.outstanding());
+            host.put("served", endpoint.served());
+            host.put("consecutiveFailures", endpoint.consecutiveFailures());
+            host.put("warmModels", endpoint.warmModels());
+            host.put("ejectedUntil", endpoint.ejectedUntil());
+            host.put("lastProbe", endpoint.lastProbe());
+            return host;
+        }).toList();
+
+        List<Map<String, Object>> bulkheads = admission.stats().stream().map(stats -> {
+            Map<String, Object> bulkhead = new LinkedHashMap<>();
+            bulkhead.put("name", stats.name());
+            bulkhead.put("limit", stats.limit());
+            bulkhead.put("maxLimit", stats.maxLimit());
+            bulkhead.put("inFlight", stats.inFlight());
+            bulkhead.put("queued", stats.queued());
+            bulkhead.put("maxQueue", stats.maxQueue());
+            bulkhead.put("averageLatencyMs", stats.averageLatency().toMillis());
+            return bulkhead;
+        }).toList();
+
+        Map<String, Object> routing = new LinkedHashMap<>();
+        routing.put("endpoints", hosts);
+        routing.put("bulkheads", bulkheads);
+        routing.put("circuitBreaker", circuitBreaker.getState());
+        return routing;
+    }
+}
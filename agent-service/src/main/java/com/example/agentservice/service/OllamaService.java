@@ -2,30 +2,57 @@ package com.example.agentservice.service;
 
 import com.example.agentservice.model.OllamaRequest;
 import com.example.agentservice.model.OllamaResponse;
+import com.example.agentservice.model.StoredFile;
+import com.example.agentservice.resilience.CircuitBreaker;
+import com.example.agentservice.resilience.RetryPolicies;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.BodyInserters;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.util.Base64;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
 @Slf4j
 public class OllamaService {
     
-    private WebClient webClient;
-    private final WebClient.Builder webClientBuilder;
+    // What generateResponse answers when Ollama failed; callers that need to tell the two apart use generate
+    public static final String UNAVAILABLE_RESPONSE = "Unable to analyze task. Please check if Ollama is running.";
+    
+    private static final int BASE64_CHUNK_BYTES = 3 * 16 * 1024;
+    
+    private final OllamaEndpointPool endpoints;
     private final ObjectMapper objectMapper;
+    private final AnalysisCache analysisCache;
+    private final OllamaAdmission admission;
+    private final CircuitBreaker circuitBreaker;
+    
+    @Value("${resilience.ollama.max-retries:2}")
+    private int maxRetries;
+    
+    @Value("${resilience.ollama.min-backoff:PT0.2S}")
+    private Duration minBackoff;
     
-    @Value("${ollama.url:http://host.docker.internal:11434}")
-    private String ollamaUrl;
+    @Value("${resilience.ollama.max-backoff:PT2S}")
+    private Duration maxBackoff;
     
     @Value("${ollama.model:llama3.2}")
     private String defaultModel;
@@ -33,14 +60,13 @@ public class OllamaService {
     @Value("${ollama.vision.model:llava}")
     private String visionModel;
     
-    public OllamaService(WebClient.Builder webClientBuilder, ObjectMapper objectMapper) {
-        this.webClientBuilder = webClientBuilder;
+    public OllamaService(OllamaEndpointPool endpoints, ObjectMapper objectMapper, AnalysisCache analysisCache,
+                         OllamaAdmission admission, @Qualifier("ollamaCircuitBreaker") CircuitBreaker circuitBreaker) {
+        this.endpoints = endpoints;
         this.objectMapper = objectMapper;
-    }
-    
-    @PostConstruct
-    private void init() {
-        this.webClient = webClientBuilder.baseUrl(ollamaUrl).build();
+        this.analysisCache = analysisCache;
+        this.admission = admission;
+        this.circuitBreaker = circuitBreaker;
     }
     
     public Mono<String> generateResponse(String prompt) {
@@ -48,53 +74,170 @@ public class OllamaService {
     }
     
     public Mono<String> generateResponse(String prompt, String model) {
+        return generate(prompt, model)
+            .onErrorReturn(OllamaUnavailableException.class, UNAVAILABLE_RESPONSE);
+    }
+    
+    public Mono<String> generate(String prompt) {
+        return generate(prompt, defaultModel);
+    }
+    
+    /**
+     * Like {@link #generateResponse(String, String)}, but a failed call ends in an
+     * {@link OllamaUnavailableException} instead of the {@link #UNAVAILABLE_RESPONSE} text.
+     */
+    public Mono<String> generate(String prompt, String model) {
         OllamaRequest request = new OllamaRequest();
         request.setModel(model);
         request.setPrompt(prompt);
         request.setStream(false);
         
-        log.info("Calling Ollama API at {} with model: {}, prompt length: {}", ollamaUrl, model, prompt.length());
-        
-        return webClient.post()
-            .uri("/api/generate")
-            .contentType(MediaType.APPLICATION_JSON)
-            .bodyValue(request)
-            .retrieve()
-            .bodyToMono(OllamaResponse.class)
-            .timeout(Duration.ofSeconds(30))
-            .map(OllamaResponse::getResponse)
+        return analysisCache.get(model, prompt, null, () -> admission.text().execute(resilient(endpoints.execute(model, endpoint -> {
+                log.info("Calling Ollama API at {} with model: {}, prompt length: {}", endpoint.url(), model, prompt.length());
+                return endpoint.client().post()
+                    .uri("/api/generate")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(request)
+                    .retrieve()
+                    .bodyToMono(OllamaResponse.class)
+                    .timeout(Duration.ofSeconds(30))
+                    .map(OllamaResponse::getResponse);
+            }))))
             .doOnError(error -> log.error("Error calling Ollama API: {}", error.getMessage()))
-            .onErrorReturn("Unable to analyze task. Please check if Ollama is running.");
+            // Shed load is reported to the caller (503 + Retry-After) as it is
+            .onErrorMap(error -> !(error instanceof OllamaOverloadedException), OllamaUnavailableException::new);
     }
     
-    public Mono<String> analyzeImageWithVision(String base64Image, String prompt) {
-        return analyzeImageWithVision(base64Image, prompt, visionModel);
+    /**
+     * Streams the completion as Ollama produces it (stream=true, NDJSON chunks). A completion already
+     * in the analysis cache is replayed as a single chunk. Cancelling the returned Flux closes the
+     * connection, which makes Ollama stop generating.
+     */
+    public Flux<String> streamResponse(String prompt) {
+        Optional<String> cached = analysisCache.getIfPresent(defaultModel, prompt, null);
+        if (cached.isPresent()) {
+            return Flux.just(cached.get());
+        }
+        
+        OllamaRequest request = new OllamaRequest();
+        request.setModel(defaultModel);
+        request.setPrompt(prompt);
+        request.setStream(true);
+        
+        return admission.text().execute(circuitBreaker.execute(endpoints.executeMany(defaultModel, endpoint -> {
+            log.info("Streaming from Ollama API at {} with model: {}, prompt length: {}", endpoint.url(), defaultModel, prompt.length());
+            return endpoint.client().post()
+                .uri("/api/generate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(request)
+                .retrieve()
+                .bodyToFlux(OllamaResponse.class)
+                .timeout(Duration.ofSeconds(30)) // Applies to the gap before each chunk, not the whole completion
+                .takeUntil(OllamaResponse::isDone)
+                .filter(chunk -> chunk.getResponse() != null && !chunk.getResponse().isEmpty())
+                .map(OllamaResponse::getResponse);
+        })))
+            .doOnError(error -> log.error("Error streaming from Ollama API: {}", error.getMessage()));
+    }
+    
+    /**
+     * Circuit breaker plus jittered retries of refused connections and 502/503; a retry is routed
+     * afresh, so it usually lands on another endpoint. Generation is read-only, hence safe to repeat.
+     * Timeouts are not retried: they mean the model host is saturated, and a retry would add load and
+     * push the call past the job timeout. Streams only get the breaker, since a retry would replay
+     * tokens already delivered.
+     */
+    private <T> Mono<T> resilient(Mono<T> call) {
+        return circuitBreaker.execute(call)
+            .retryWhen(RetryPolicies.jitteredBackoff(maxRetries, minBackoff, maxBackoff, RetryPolicies::isUnavailable));
+    }
+    
+    // Records a completion assembled from streamResponse so later identical prompts skip inference
+    public void cacheResponse(String prompt, String response) {
+        analysisCache.put(defaultModel, prompt, null, response);
     }
     
-    public Mono<String> analyzeImageWithVision(String base64Image, String prompt, String model) {
-        // Ollama vision API format
-        Map<String, Object> request = new HashMap<>();
+    /**
+     * Vision analysis of an image on disk. The request body is streamed: the file is read and
+     * Base64-encoded chunk by chunk into the JSON "images" entry, so neither the raw bytes nor the
+     * encoded string are ever held in memory as a whole.
+     */
+    public Mono<String> analyzeImageWithVision(StoredFile image, String prompt) {
+        return analyzeImageWithVision(image, prompt, visionModel);
+    }
+    
+    public Mono<String> analyzeImageWithVision(StoredFile image, String prompt, String model) {
+        return analysisCache.get(model, prompt, image.hash(), () -> admission.vision().execute(resilient(endpoints.execute(model, endpoint -> {
+                log.info("Calling Ollama Vision API at {} with model: {}, prompt length: {}, streaming image {}", endpoint.url(), model, prompt.length(), image.hash());
+                return endpoint.client().post()
+                    .uri("/api/generate")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(BodyInserters.fromDataBuffers(visionRequestBody(image.path(), prompt, model)))
+                    .retrieve()
+                    .bodyToMono(OllamaResponse.class)
+                    .timeout(Duration.ofSeconds(60))
+                    .map(OllamaResponse::getResponse);
+            }))))
+            .doOnError(error -> log.error("Error calling Ollama Vision API: {}", error.getMessage()))
+            .onErrorReturn(error -> !(error instanceof OllamaOverloadedException), "Unable to analyze image. Please check if Ollama is running with a vision model.");
+    }
+    
+    private Flux<DataBuffer> visionRequestBody(Path imageFile, String prompt, String model) {
+        Map<String, Object> request = new LinkedHashMap<>();
         request.put("model", model);
         request.put("prompt", prompt);
         request.put("stream", false);
-        request.put("images", new String[]{base64Image});
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            return Flux.error(e);
+        }
+        // {"model":...,"stream":false  +  ,"images":["  +  <base64 chunks>  +  "]}
+        String prefix = json.substring(0, json.length() - 1) + ",\"images\":[\"";
+        DefaultDataBufferFactory buffers = DefaultDataBufferFactory.sharedInstance;
         
-        log.info("Calling Ollama Vision API at {} with model: {}, prompt length: {}", ollamaUrl, model, prompt.length());
+        Flux<DataBuffer> image = Flux.using(
+            () -> FileChannel.open(imageFile, StandardOpenOption.READ),
+            channel -> Flux.<DataBuffer>generate(sink -> {
+                try {
+                    byte[] chunk = readChunk(channel);
+                    if (chunk == null) {
+                        sink.complete();
+                    } else {
+                        sink.next(buffers.wrap(Base64.getEncoder().encode(chunk)));
+                    }
+                } catch (IOException e) {
+                    sink.error(e);
+                }
+            }),
+            channel -> {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.warn("Could not close {}: {}", imageFile, e.getMessage());
+                }
+            });
         
-        return webClient.post()
-            .uri("/api/generate")
-            .contentType(MediaType.APPLICATION_JSON)
-            .bodyValue(request)
-            .retrieve()
-            .bodyToMono(OllamaResponse.class)
-            .timeout(Duration.ofSeconds(60))
-            .map(OllamaResponse::getResponse)
-            .doOnError(error -> log.error("Error calling Ollama Vision API: {}", error.getMessage()))
-            .onErrorReturn("Unable to analyze image. Please check if Ollama is running with a vision model.");
+        return Flux.concat(
+            Mono.fromSupplier(() -> buffers.wrap(prefix.getBytes(StandardCharsets.UTF_8))),
+            image,
+            Mono.fromSupplier(() -> buffers.wrap("\"]}".getBytes(StandardCharsets.UTF_8))));
     }
     
-    public String encodeImageToBase64(byte[] imageBytes) {
-        return Base64.getEncoder().encodeToString(imageBytes);
+    // Fills a whole chunk (a multiple of 3 bytes, so encoded chunks concatenate without padding) or returns the tail; null at EOF
+    private byte[] readChunk(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BASE64_CHUNK_BYTES);
+        while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+            // keep reading until the chunk is full or the file ends
+        }
+        if (buffer.position() == 0) {
+            return null;
+        }
+        byte[] chunk = new byte[buffer.position()];
+        buffer.flip().get(chunk);
+        return chunk;
     }
 }
 
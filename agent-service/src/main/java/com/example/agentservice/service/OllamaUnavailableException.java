@@ -0,0 +1,12 @@
+package com.example.agentservice.service;
+
+/**
+ * Thrown by {@link OllamaService#generate} when no answer could be had from Ollama (unreachable, failing,
+ * timed out or its circuit open). Shed load is reported as {@link OllamaOverloadedException} instead.
+ */
+public class OllamaUnavailableException extends RuntimeException {
+
+    public OllamaUnavailableException(Throwable cause) {
+        super("Ollama is unavailable: " + cause.getMessage(), cause);
+    }
+}
@@ -1,12 +1,24 @@
 package com.example.agentservice.service;
 
+import com.example.agentservice.client.TaskServiceClient;
+import com.example.agentservice.model.AnalysisStreamEvent;
+import com.example.agentservice.model.StoredFile;
 import com.example.agentservice.model.TaskAnalysis;
+import com.example.agentservice.resilience.CircuitBreaker;
+import com.example.agentservice.resilience.CircuitOpenException;
+import com.example.agentservice.resilience.RetryPolicies;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 @Service
@@ -17,10 +29,31 @@ public class TaskAnalysisService {
     private OllamaService ollamaService;
     
     @Autowired
-    private WebClient.Builder webClientBuilder;
+    private TaskServiceClient taskServiceClient;
     
-    @org.springframework.beans.factory.annotation.Value("${task.service.url:http://task-service:8081}")
-    private String taskServiceUrl;
+    @Autowired
+    private TaskUpdateOutbox taskUpdateOutbox;
+    
+    @Autowired
+    @Qualifier("taskServiceCircuitBreaker")
+    private CircuitBreaker taskServiceCircuitBreaker;
+    
+    @org.springframework.beans.factory.annotation.Value("${resilience.task-service.max-retries:2}")
+    private int updateRetries;
+    
+    @org.springframework.beans.factory.annotation.Value("${resilience.task-service.min-backoff:PT0.2S}")
+    private Duration updateMinBackoff;
+    
+    @org.springframework.beans.factory.annotation.Value("${resilience.task-service.max-backoff:PT2S}")
+    private Duration updateMaxBackoff;
+    
+    // Upper bound on how long an upload waits for task-service before the update goes to the outbox
+    @org.springframework.beans.factory.annotation.Value("${resilience.task-service.update-deadline:PT15S}")
+    private Duration updateDeadline;
+    
+    // Sends uploaded images to the vision model instead of the CPU-friendly "uploaded = done" rule
+    @org.springframework.beans.factory.annotation.Value("${agent.vision.enabled:false}")
+    private boolean visionEnabled;
     
     private static final Pattern YES_PATTERN = Pattern.compile("\\b(yes|true|completed|done|finished|accomplished)\\b", Pattern.CASE_INSENSITIVE);
     private static final Pattern NO_PATTERN = Pattern.compile("\\b(no|false|not completed|not done|pending|incomplete|unfinished)\\b", Pattern.CASE_INSENSITIVE);
@@ -33,7 +66,84 @@ public class TaskAnalysisService {
             .map(response -> parseAnalysisResponse(taskId, title, description, markedCompleted, response));
     }
     
-    public Mono<TaskAnalysis> analyzeTaskWithFile(String taskId, String title, String description, String base64Image, String fileUrl) {
+    /**
+     * Streaming variant of {@link #analyzeTask}: emits each token, then each field as soon as its line
+     * is complete, and finally the parsed analysis. Generation is cancelled as soon as every field of
+     * the response format has been seen, so trailing tokens are never generated.
+     */
+    public Flux<AnalysisStreamEvent> streamAnalysis(String taskId, String title, String description, boolean markedCompleted) {
+        String prompt = buildAnalysisPrompt(title, description, markedCompleted);
+        
+        return Flux.defer(() -> {
+            AnalysisFieldParser parser = new AnalysisFieldParser();
+            Flux<AnalysisStreamEvent> live = ollamaService.streamResponse(prompt)
+                .map(token -> new TokenFields(token, parser.accept(token)))
+                .takeUntil(chunk -> parser.isComplete())
+                .concatMapIterable(chunk -> {
+                    List<AnalysisStreamEvent> events = new ArrayList<>();
+                    events.add(new AnalysisStreamEvent("token", null, chunk.token(), null));
+                    chunk.fields().forEach((field, value) -> events.add(new AnalysisStreamEvent("field", field, value, null)));
+                    return events;
+                });
+            Flux<AnalysisStreamEvent> trailing = Flux.defer(() -> Flux.fromIterable(parser.finish().entrySet())
+                .map(field -> new AnalysisStreamEvent("field", field.getKey(), field.getValue(), null)));
+            Mono<AnalysisStreamEvent> result = Mono.fromSupplier(() -> {
+                if (parser.isComplete()) {
+                    ollamaService.cacheResponse(prompt, parser.getText());
+                }
+                TaskAnalysis analysis = parseAnalysisResponse(taskId, title, description, markedCompleted, parser.getText());
+                return new AnalysisStreamEvent("result", null, null, analysis);
+            });
+            return live.concatWith(trailing).concatWith(result);
+        });
+    }
+    
+    private record TokenFields(String token, Map<String, String> fields) {
+    }
+    
+    // Answered without the model: an uploaded file (or a task already done) counts as completion
+    public TaskAnalysis uploadedAnalysis(String taskId, String title, String description, boolean markedCompleted) {
+        TaskAnalysis analysis = new TaskAnalysis();
+        analysis.setTaskId(taskId);
+        analysis.setTaskTitle(title);
+        analysis.setTaskDescription(description);
+        analysis.setMarkedCompleted(markedCompleted);
+        analysis.setActuallyCompleted(true); // File uploaded = actually completed
+        analysis.setConfidence(1.0);
+        analysis.setReasoning("File has been uploaded. Task is marked as completed.");
+        analysis.setRecommendation("Task is complete based on file upload.");
+        analysis.setGrade(null);
+        return analysis;
+    }
+    
+    // CPU-friendly answer for a task without an upload: its completion status is taken at face value
+    public TaskAnalysis statusAnalysis(String taskId, String title, String description, boolean markedCompleted) {
+        TaskAnalysis analysis = new TaskAnalysis();
+        analysis.setTaskId(taskId);
+        analysis.setTaskTitle(title);
+        analysis.setTaskDescription(description);
+        analysis.setMarkedCompleted(markedCompleted);
+        analysis.setActuallyCompleted(markedCompleted); // If marked completed and no file, assume it's done
+        analysis.setConfidence(markedCompleted ? 0.8 : 0.5);
+        analysis.setReasoning(markedCompleted ? 
+            "Task is marked as completed. No file uploaded, so completion is based on task status." :
+            "Task is not yet completed. Student should upload a file to complete the task.");
+        analysis.setRecommendation(markedCompleted ?
+            "Task appears to be completed. Consider verifying if file upload is needed." :
+            "Please upload a file to complete this task.");
+        analysis.setGrade(null);
+        return analysis;
+    }
+    
+    public Mono<TaskAnalysis> analyzeTaskWithFile(String taskId, String title, String description, StoredFile file, String fileUrl) {
+        if (visionEnabled && file != null) {
+            log.info("File uploaded for task {} - analyzing with vision model", taskId);
+            return ollamaService.analyzeImageWithVision(file, buildFileAnalysisPrompt(title, description))
+                .map(response -> parseFileAnalysisResponse(taskId, title, description, response))
+                .flatMap(analysis -> updateTaskInMongoDBWithAnalysis(taskId, analysis.isActuallyCompleted(), fileUrl, analysis.getGrade(), analysis)
+                    .then(Mono.just(analysis)));
+        }
+        
         // CPU-friendly mode: Skip AI analysis, just mark as completed when file is uploaded
         log.info("File uploaded for task {} - marking as completed (CPU-friendly mode, no AI analysis)", taskId);
         
@@ -59,54 +169,57 @@ public class TaskAnalysisService {
         return updateTaskInMongoDBWithAnalysis(taskId, taskDone, fileUrl, grade, null);
     }
     
-    @SuppressWarnings("unchecked")
     public Mono<Void> updateTaskInMongoDBWithAnalysis(String taskId, boolean taskDone, String fileUrl, Double grade, TaskAnalysis analysis) {
-        WebClient webClient = webClientBuilder.baseUrl(taskServiceUrl).build();
-        
         log.info("Updating task {} in MongoDB: taskDone={}, fileUrl={}, grade={}, with analysis={}", taskId, taskDone, fileUrl, grade, analysis != null);
         
-        // First get the task
-        return webClient.get()
-            .uri("/api/tasks/{id}", taskId)
-            .retrieve()
-            .bodyToMono(java.util.Map.class)
-            .doOnNext(task -> log.info("Retrieved task from MongoDB: {}", task))
-            .flatMap(task -> {
-                task.put("fileUploaded", true);
-                task.put("taskDone", taskDone);
-                if (fileUrl != null) {
-                    task.put("fileUrl", fileUrl);
-                }
-                if (grade != null) {
-                    task.put("grade", grade);
-                }
-                // Save analysis data if provided
-                if (analysis != null) {
-                    task.put("analysisReasoning", analysis.getReasoning());
-                    task.put("analysisRecommendation", analysis.getRecommendation());
-                    task.put("analysisConfidence", analysis.getConfidence());
-                }
-                // Also update completed for backward compatibility
-                task.put("completed", taskDone);
-                
-                log.info("Updating task with new values: fileUploaded=true, taskDone={}, fileUrl={}, analysis saved", taskDone, fileUrl);
-                
-                return webClient.put()
-                    .uri("/api/tasks/{id}", taskId)
-                    .bodyValue(task)
-                    .retrieve()
-                    .bodyToMono(Void.class)
+        // Only the changed fields are sent; task-service applies them with one atomic $set
+        java.util.Map<String, Object> changes = new java.util.HashMap<>();
+        changes.put("fileUploaded", true);
+        changes.put("taskDone", taskDone);
+        if (fileUrl != null) {
+            changes.put("fileUrl", fileUrl);
+        }
+        if (grade != null) {
+            changes.put("grade", grade);
+        }
+        // Save analysis data if provided
+        if (analysis != null) {
+            changes.put("analysisReasoning", analysis.getReasoning());
+            changes.put("analysisRecommendation", analysis.getRecommendation());
+            changes.put("analysisConfidence", analysis.getConfidence());
+        }
+        // Also update completed for backward compatibility
+        changes.put("completed", taskDone);
+        
+        // An update still waiting in the outbox goes first; this one is merged behind it to keep their order
+        return Mono.fromCallable(() -> taskUpdateOutbox.hasPending(taskId))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(pending -> pending
+                ? enqueueUpdate(taskId, changes, "an earlier update for the task is waiting in the outbox")
+                : taskServiceCircuitBreaker.execute(taskServiceClient.patchTask(taskId, changes))
+                    .retryWhen(RetryPolicies.jitteredBackoff(updateRetries, updateMinBackoff, updateMaxBackoff))
+                    .timeout(updateDeadline)
                     .doOnSuccess(v -> log.info("Successfully updated task {} in MongoDB with analysis", taskId))
-                    .doOnError(err -> log.error("Failed to update task {}: {}", taskId, err.getMessage()));
-            })
-            .doOnError(error -> log.error("Error updating task in MongoDB: {}", error.getMessage(), error))
-            .onErrorResume(error -> {
-                log.error("Failed to update task, but continuing: {}", error.getMessage());
-                return Mono.empty(); // Continue even if update fails
-            });
+                    // Only a failure that a later replay can get past is kept; a rejected update (4xx) would be rejected again
+                    .onErrorResume(TaskAnalysisService::isDeferrable, error -> enqueueUpdate(taskId, changes, String.valueOf(error.getMessage())))
+                    .onErrorResume(error -> {
+                        log.warn("Dropping update for task {}: {}", taskId, error.getMessage());
+                        return Mono.empty();
+                    }));
+    }
+
+    private Mono<Void> enqueueUpdate(String taskId, Map<String, Object> changes, String reason) {
+        return Mono.fromRunnable(() -> taskUpdateOutbox.enqueue(taskId, changes, reason))
+            .subscribeOn(Schedulers.boundedElastic())
+            .then();
+    }
+
+    // task-service was unreachable, overloaded or too slow, or its breaker is open
+    private static boolean isDeferrable(Throwable error) {
+        return RetryPolicies.isTransient(error) || error instanceof CircuitOpenException;
     }
     
-    private String buildAnalysisPrompt(String title, String description, boolean markedCompleted) {
+    String buildAnalysisPrompt(String title, String description, boolean markedCompleted) {
         return String.format(
             "Analyze the following task and determine if it is actually completed or not.\n\n" +
             "Task Title: %s\n" +
@@ -128,7 +241,7 @@ public class TaskAnalysisService {
         );
     }
     
-    private TaskAnalysis parseAnalysisResponse(String taskId, String title, String description, 
+    TaskAnalysis parseAnalysisResponse(String taskId, String title, String description, 
                                                 boolean markedCompleted, String response) {
         TaskAnalysis analysis = new TaskAnalysis();
         analysis.setTaskId(taskId);
@@ -0,0 +1,128 @@
+package com.example.agentservice.service;
+
+import com.example.agentservice.client.TaskServiceClient;
+import com.example.agentservice.model.TaskUpdateOutboxEntry;
+import com.example.agentservice.resilience.CircuitBreaker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Durable outbox for task-service updates. Updates that fail after their retries (or while the
+ * task-service circuit is open) are stored in Mongo and replayed in the background until they are
+ * delivered. PATCH only sets fields, so delivering an entry twice is harmless.
+ */
+@Service
+@Slf4j
+public class TaskUpdateOutbox {
+
+    private final MongoTemplate mongoTemplate;
+    private final TaskServiceClient taskServiceClient;
+    private final CircuitBreaker circuitBreaker;
+
+    @Value("${task.update-outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${task.update-outbox.min-backoff:PT5S}")
+    private Duration minBackoff;
+
+    @Value("${task.update-outbox.max-backoff:PT10M}")
+    private Duration maxBackoff;
+
+    @Value("${task.update-outbox.call-timeout:PT15S}")
+    private Duration callTimeout;
+
+    public TaskUpdateOutbox(MongoTemplate mongoTemplate, TaskServiceClient taskServiceClient,
+                            @Qualifier("taskServiceCircuitBreaker") CircuitBreaker circuitBreaker) {
+        this.mongoTemplate = mongoTemplate;
+        this.taskServiceClient = taskServiceClient;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    // Blocking (Mongo); reactive callers run it on boundedElastic
+    public boolean hasPending(String taskId) {
+        return mongoTemplate.exists(new Query(Criteria.where("taskId").is(taskId)), TaskUpdateOutboxEntry.class);
+    }
+
+    // Stores the update, merging it over any undelivered one for the same task
+    public void enqueue(String taskId, Map<String, Object> changes, String reason) {
+        Instant now = Instant.now();
+        Update update = new Update()
+                .inc("revision", 1)
+                .set("nextAttemptAt", now)
+                .set("lastError", reason)
+                .setOnInsert("createdAt", now)
+                .setOnInsert("attempts", 0);
+        changes.forEach((field, value) -> update.set("changes." + field, value));
+        mongoTemplate.upsert(new Query(Criteria.where("taskId").is(taskId)), update, TaskUpdateOutboxEntry.class);
+        log.warn("Update for task {} stored in the outbox for replay: {}", taskId, reason);
+    }
+
+    @Scheduled(fixedDelayString = "${task.update-outbox.poll-interval-ms:5000}")
+    public void replay() {
+        if (!circuitBreaker.allowsCalls()) {
+            return;
+        }
+        Query due = new Query(Criteria.where("nextAttemptAt").lte(Instant.now()))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt"))
+                .limit(batchSize);
+        List<TaskUpdateOutboxEntry> entries = mongoTemplate.find(due, TaskUpdateOutboxEntry.class);
+        for (TaskUpdateOutboxEntry entry : entries) {
+            if (!circuitBreaker.allowsCalls()) {
+                return;
+            }
+            deliver(entry);
+        }
+    }
+
+    private void deliver(TaskUpdateOutboxEntry entry) {
+        try {
+            circuitBreaker.execute(taskServiceClient.patchTask(entry.getTaskId(), entry.getChanges())).block(callTimeout);
+            remove(entry);
+            log.info("Replayed outbox update for task {} after {} attempt(s)", entry.getTaskId(), entry.getAttempts() + 1);
+        } catch (WebClientResponseException e) {
+            if (e.getStatusCode().is4xxClientError()) {
+                // Rejected outright (e.g. the task was deleted): replaying can never succeed
+                remove(entry);
+                log.error("Dropping outbox update for task {}: task-service answered {}", entry.getTaskId(), e.getStatusCode());
+            } else {
+                reschedule(entry, e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            reschedule(entry, e.getMessage());
+        }
+    }
+
+    // Only deletes the revision that was sent; an update merged in meanwhile stays queued
+    private void remove(TaskUpdateOutboxEntry entry) {
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(entry.getId()).and("revision").is(entry.getRevision())),
+                TaskUpdateOutboxEntry.class);
+    }
+
+    private void reschedule(TaskUpdateOutboxEntry entry, String error) {
+        int attempts = entry.getAttempts() + 1;
+        long exponential = minBackoff.toMillis() << Math.min(attempts - 1, 20);
+        long backoff = Math.min(maxBackoff.toMillis(), exponential);
+        long jittered = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(entry.getId())),
+                new Update().set("attempts", attempts)
+                        .set("nextAttemptAt", Instant.now().plusMillis(jittered))
+                        .set("lastError", error),
+                TaskUpdateOutboxEntry.class);
+        log.warn("Outbox replay for task {} failed (attempt {}), next try in {} ms: {}", entry.getTaskId(), attempts, jittered, error);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.agentservice.resilience;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CircuitBreakerTest {
+
+    private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    };
+
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 4, 4, 0.5, Duration.ofSeconds(30), 1,
+            error -> !(error instanceof IllegalArgumentException), clock);
+
+    @Test
+    void opensOnFailureRateThenProbesAndCloses() {
+        call(true);
+        call(true);
+        call(false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        call(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(CircuitOpenException.class, () -> call(true));
+
+        now = now.plusSeconds(31);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        call(true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void failedProbeReopensAndIgnoredErrorsDoNotCount() {
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> breaker.execute(Mono.error(new IllegalArgumentException("bad request"))).block());
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // Ignored errors were recorded as successes: two failures make the rate 50%
+        safeCall(false);
+        safeCall(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        now = now.plusSeconds(31);
+        safeCall(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void call(boolean succeed) {
+        if (succeed) {
+            breaker.execute(Mono.just("ok")).block();
+        } else {
+            safeCall(false);
+        }
+    }
+
+    private void safeCall(boolean succeed) {
+        try {
+            breaker.execute(succeed ? Mono.just("ok") : Mono.error(new IllegalStateException("down"))).block();
+        } catch (IllegalStateException expected) {
+            // the failure is what is being recorded
+        }
+    }
+}
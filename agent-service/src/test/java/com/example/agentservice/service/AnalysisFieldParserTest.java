@@ -0,0 +1,36 @@
+package com.example.agentservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisFieldParserTest {
+
+    @Test
+    void reportsFieldsOnceTheirLineIsComplete() {
+        AnalysisFieldParser parser = new AnalysisFieldParser();
+
+        assertTrue(parser.accept("COMPLETED: Y").isEmpty());
+        assertEquals(Map.of("COMPLETED", "YES"), parser.accept("ES\nCONFIDENCE: HIGH"));
+        assertEquals(Map.of("CONFIDENCE", "HIGH", "REASONING", "All parts done."), parser.accept("\nREASONING: All parts done.\n"));
+        assertFalse(parser.isComplete());
+
+        parser.accept("RECOMMENDATION: Move on");
+        assertFalse(parser.isComplete());
+        assertEquals(Map.of("RECOMMENDATION", "Move on"), parser.finish());
+        assertTrue(parser.isComplete());
+    }
+
+    @Test
+    void ignoresRepeatedAndUnknownLines() {
+        AnalysisFieldParser parser = new AnalysisFieldParser();
+
+        parser.accept("Here is my analysis:\nCOMPLETED: NO\n");
+        assertTrue(parser.accept("COMPLETED: YES\nNOTE: extra\n").isEmpty());
+        assertEquals("Here is my analysis:\nCOMPLETED: NO\nCOMPLETED: YES\nNOTE: extra\n", parser.getText());
+    }
+}
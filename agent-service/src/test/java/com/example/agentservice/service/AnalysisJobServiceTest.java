@@ -0,0 +1,80 @@
+package com.example.agentservice.service;
+
+import com.example.agentservice.model.AnalysisJob;
+import com.example.agentservice.model.TaskAnalysis;
+import com.example.agentservice.repository.AnalysisJobRepository;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnalysisJobServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final AnalysisJobService service = new AnalysisJobService(mock(AnalysisJobRepository.class), mongoTemplate);
+
+    AnalysisJobServiceTest() {
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "lease", Duration.ofMinutes(5));
+    }
+
+    @Test
+    void claimSkipsJobsWithoutAttemptsLeft() {
+        service.claimNext();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class), eq(AnalysisJob.class));
+        assertEquals(new Document("$lt", 3), query.getValue().getQueryObject().get("attempts"));
+        assertTrue(((Document) update.getValue().getUpdateObject().get("$set")).containsKey("claimToken"));
+    }
+
+    @Test
+    void outcomeIsOnlyRecordedUnderTheCurrentClaim() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(AnalysisJob.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        AnalysisJob job = new AnalysisJob();
+        job.setId("j1");
+        job.setClaimToken("claim-1");
+
+        service.succeed(job, new TaskAnalysis());
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(query.capture(), any(Update.class), eq(AnalysisJob.class));
+        Document filter = query.getValue().getQueryObject();
+        assertEquals("j1", filter.get("_id"));
+        assertEquals(AnalysisJob.RUNNING, filter.get("status"));
+        assertEquals("claim-1", filter.get("claimToken"));
+    }
+
+    @Test
+    void expiredJobsOnTheirLastAttemptFailInsteadOfRequeueing() {
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(AnalysisJob.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        service.requeueExpired();
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).updateMulti(any(Query.class), updates.capture(), eq(AnalysisJob.class));
+        List<Update> applied = updates.getAllValues();
+        assertEquals(AnalysisJob.FAILED, ((Document) applied.get(0).getUpdateObject().get("$set")).get("status"));
+        assertEquals(AnalysisJob.QUEUED, ((Document) applied.get(1).getUpdateObject().get("$set")).get("status"));
+    }
+}
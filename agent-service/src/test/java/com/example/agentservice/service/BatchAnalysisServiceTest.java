@@ -0,0 +1,103 @@
+package com.example.agentservice.service;
+
+import com.example.agentservice.model.TaskAnalysis;
+import com.example.agentservice.model.TaskAnalysisRequest;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchAnalysisServiceTest {
+
+    private static final String DONE = "COMPLETED: YES\nCONFIDENCE: HIGH\nREASONING: done\nRECOMMENDATION: none\n";
+    private static final String NOT_DONE = "COMPLETED: NO\nCONFIDENCE: HIGH\nREASONING: missing\nRECOMMENDATION: finish it\n";
+
+    private final OllamaService ollamaService = mock(OllamaService.class);
+    private final BatchAnalysisService service;
+
+    BatchAnalysisServiceTest() {
+        TaskAnalysisService taskAnalysisService = new TaskAnalysisService();
+        ReflectionTestUtils.setField(taskAnalysisService, "ollamaService", ollamaService);
+        service = new BatchAnalysisService(taskAnalysisService, ollamaService);
+        ReflectionTestUtils.setField(service, "modelAnalysis", true);
+        ReflectionTestUtils.setField(service, "maxTasksPerPrompt", 2);
+        ReflectionTestUtils.setField(service, "maxPromptChars", 6000);
+        ReflectionTestUtils.setField(service, "concurrency", 1);
+    }
+
+    @Test
+    void tasksArePackedUpToTheTaskLimit() {
+        when(ollamaService.generate(anyString())).thenReturn(Mono.just("TASK 1\n" + DONE + "TASK 2\n" + DONE));
+
+        List<TaskAnalysis> results = service.analyze(tasks(5)).block();
+
+        ArgumentCaptor<String> prompts = ArgumentCaptor.forClass(String.class);
+        verify(ollamaService, times(3)).generate(prompts.capture());
+        assertTrue(prompts.getAllValues().get(0).contains("Title: t0") && prompts.getAllValues().get(0).contains("Title: t1"));
+        assertFalse(prompts.getAllValues().get(2).contains("TASK 1"));
+        assertEquals(5, results.size());
+    }
+
+    @Test
+    void sectionsAreMatchedByTaskNumberNotOrder() {
+        when(ollamaService.generate(anyString())).thenReturn(Mono.just("**TASK #2**\n" + NOT_DONE + "Task 1:\n" + DONE));
+
+        List<TaskAnalysis> results = service.analyze(tasks(2)).block();
+
+        assertEquals("t0", results.get(0).getTaskTitle());
+        assertTrue(results.get(0).isActuallyCompleted());
+        assertFalse(results.get(1).isActuallyCompleted());
+    }
+
+    @Test
+    void skippedTasksAreAskedAgainInOnePack() {
+        ReflectionTestUtils.setField(service, "maxTasksPerPrompt", 3);
+        when(ollamaService.generate(anyString()))
+                .thenReturn(Mono.just("TASK 1\n" + DONE))
+                .thenReturn(Mono.just("TASK 1\n" + DONE + "TASK 2\n" + DONE));
+
+        List<TaskAnalysis> results = service.analyze(tasks(3)).block();
+
+        ArgumentCaptor<String> prompts = ArgumentCaptor.forClass(String.class);
+        verify(ollamaService, times(2)).generate(prompts.capture());
+        String reask = prompts.getAllValues().get(1);
+        assertTrue(reask.contains("Title: t1") && reask.contains("Title: t2"));
+        assertTrue(results.stream().allMatch(TaskAnalysis::isActuallyCompleted));
+    }
+
+    @Test
+    void unavailableModelFallsBackToStatusForEveryPackSize() {
+        when(ollamaService.generate(anyString())).thenReturn(Mono.error(new OllamaUnavailableException(new RuntimeException("down"))));
+
+        List<TaskAnalysis> results = service.analyze(tasks(3)).block();
+
+        // One pack of two and a pack of one, each judged on status alone
+        verify(ollamaService, times(2)).generate(anyString());
+        assertEquals(3, results.size());
+        assertTrue(results.stream().allMatch(result -> result.getReasoning().startsWith("Task is not yet completed")));
+    }
+
+    private static List<TaskAnalysisRequest> tasks(int count) {
+        List<TaskAnalysisRequest> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            TaskAnalysisRequest task = new TaskAnalysisRequest();
+            task.setId("id" + i);
+            task.setTitle("t" + i);
+            task.setDescription("d" + i);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+}
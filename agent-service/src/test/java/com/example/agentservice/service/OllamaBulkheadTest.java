@@ -0,0 +1,91 @@
+package com.example.agentservice.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OllamaBulkheadTest {
+
+    @Test
+    void queuesUpToTheLimitThenRejects() {
+        OllamaBulkhead bulkhead = new OllamaBulkhead("text", 1, 1, Duration.ofSeconds(10), Duration.ofSeconds(10));
+        Sinks.One<String> first = Sinks.one();
+        AtomicReference<String> firstResult = new AtomicReference<>();
+        AtomicReference<String> secondResult = new AtomicReference<>();
+        AtomicReference<Throwable> thirdError = new AtomicReference<>();
+
+        bulkhead.execute(first.asMono()).subscribe(firstResult::set);
+        bulkhead.execute(Mono.fromSupplier(() -> "second")).subscribe(secondResult::set);
+        bulkhead.execute(Mono.just("third")).subscribe(value -> { }, thirdError::set);
+
+        assertNull(secondResult.get());
+        assertInstanceOf(OllamaOverloadedException.class, thirdError.get());
+        assertTrue(((OllamaOverloadedException) thirdError.get()).getRetryAfterSeconds() >= 1);
+
+        first.tryEmitValue("first");
+        assertEquals("first", firstResult.get());
+        assertEquals("second", secondResult.get());
+        assertEquals(0, bulkhead.stats().inFlight());
+        assertEquals(0, bulkhead.stats().queued());
+    }
+
+    @Test
+    void waiterGivesUpAfterMaxWaitAndFreesItsPlace() {
+        OllamaBulkhead bulkhead = new OllamaBulkhead("vision", 1, 1, Duration.ofMillis(50), Duration.ofSeconds(10));
+        Sinks.One<String> blocker = Sinks.one();
+        bulkhead.execute(blocker.asMono()).subscribe();
+
+        Throwable error = null;
+        try {
+            bulkhead.execute(Mono.just("late")).block(Duration.ofSeconds(5));
+        } catch (OllamaOverloadedException e) {
+            error = e;
+        }
+        assertInstanceOf(OllamaOverloadedException.class, error);
+        assertEquals(0, bulkhead.stats().queued());
+
+        blocker.tryEmitValue("done");
+        assertEquals("next", bulkhead.execute(Mono.just("next")).block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void cancelRacingReleaseNeverLosesASlot() throws Exception {
+        OllamaBulkhead bulkhead = new OllamaBulkhead("text", 1, 1, Duration.ofSeconds(10), Duration.ofSeconds(10));
+        for (int i = 0; i < 2000; i++) {
+            Sinks.One<String> blocker = Sinks.one();
+            bulkhead.execute(blocker.asMono()).subscribe();
+            Disposable waiter = bulkhead.execute(Mono.<String>never()).subscribe();
+
+            CyclicBarrier start = new CyclicBarrier(2);
+            Thread releaser = new Thread(() -> {
+                await(start);
+                blocker.tryEmitValue("done");
+            });
+            releaser.start();
+            await(start);
+            waiter.dispose();
+            releaser.join();
+
+            assertEquals(0, bulkhead.stats().inFlight(), "slot lost in iteration " + i);
+            assertEquals(0, bulkhead.stats().queued());
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.agentservice.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OllamaEndpointPoolTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void stopServers() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    void spreadsCallsOverTheLeastBusyEndpoints() {
+        OllamaEndpointPool pool = pool(stub(200, "{\"models\":[]}"), stub(200, "{\"models\":[]}"));
+        Sinks.One<String> first = Sinks.one();
+        Sinks.One<String> second = Sinks.one();
+
+        List<String> used = new ArrayList<>();
+        pool.execute("phi3:mini", endpoint -> { used.add(endpoint.url()); return first.asMono(); }).subscribe();
+        pool.execute("phi3:mini", endpoint -> { used.add(endpoint.url()); return second.asMono(); }).subscribe();
+
+        assertEquals(2, used.stream().distinct().count());
+        first.tryEmitValue("done");
+        second.tryEmitValue("done");
+        assertTrue(pool.snapshot().stream().allMatch(endpoint -> endpoint.outstanding() == 0));
+    }
+
+    @Test
+    void prefersAnEndpointWithTheModelLoaded() {
+        String cold = stub(200, "{\"models\":[]}");
+        String warm = stub(200, "{\"models\":[{\"name\":\"moondream\"}]}");
+        OllamaEndpointPool pool = pool(cold, warm);
+        probe(pool);
+
+        assertEquals(warm, pool.choose("moondream").url());
+        // Within the affinity slack the warm endpoint still wins even when it is busier
+        pool.execute("moondream", endpoint -> Mono.never()).subscribe();
+        assertEquals(warm, pool.choose("moondream").url());
+    }
+
+    @Test
+    void ejectsEndpointsThatFailTheirProbe() {
+        String healthy = stub(200, "{\"models\":[]}");
+        String broken = stub(500, "{}");
+        OllamaEndpointPool pool = pool(broken, healthy);
+        probe(pool);
+
+        assertFalse(pool.snapshot().get(0).available());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(healthy, pool.choose("phi3:mini").url());
+        }
+    }
+
+    private OllamaEndpointPool pool(String... urls) {
+        return new OllamaEndpointPool(WebClient.builder(), List.of(urls), 1, 3, Duration.ofMinutes(1), Duration.ofSeconds(2));
+    }
+
+    private void probe(OllamaEndpointPool pool) {
+        pool.probe();
+        // Probes are asynchronous; wait until every endpoint has an outcome
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline
+                && !pool.snapshot().stream().allMatch(endpoint -> endpoint.lastProbe() != null || !endpoint.available())) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private String stub(int status, String psBody) {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/api/ps", exchange -> {
+                byte[] body = psBody.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+            servers.add(server);
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
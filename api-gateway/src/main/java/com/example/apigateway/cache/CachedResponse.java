@@ -0,0 +1,23 @@
+package com.example.apigateway.cache;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * An upstream 200 response held by the gateway. Entries outlive their freshness so that an expired
+ * one can still be revalidated upstream with its ETag instead of being fetched again in full.
+ */
+public record CachedResponse(HttpHeaders headers, byte[] body, String etag, long storedAtNanos, long freshUntilNanos) {
+
+    public boolean isFresh(long nowNanos) {
+        return nowNanos < freshUntilNanos;
+    }
+
+    public long ageSeconds(long nowNanos) {
+        return Math.max(0, (nowNanos - storedAtNanos) / 1_000_000_000L);
+    }
+
+    // Same content confirmed by a 304 from upstream
+    public CachedResponse renew(long nowNanos, long ttlNanos) {
+        return new CachedResponse(headers, body, etag, nowNanos, nowNanos + ttlNanos);
+    }
+}
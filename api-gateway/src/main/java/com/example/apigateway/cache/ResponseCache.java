@@ -0,0 +1,64 @@
+package com.example.apigateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared store behind the ResponseCache route filter: cached GET responses bounded by total body
+ * size, plus the upstream calls currently in flight so identical requests can wait for one of them.
+ */
+@Component
+public class ResponseCache {
+
+    private final Cache<String, CachedResponse> entries;
+    // Upstream fetches in progress; the sink completes with the new entry, or empty if it was not cacheable
+    private final Map<String, Sinks.One<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+    private final int maxEntryBytes;
+
+    public ResponseCache(@Value("${gateway.cache.max-bytes:67108864}") long maxBytes,
+                         @Value("${gateway.cache.max-entry-bytes:1048576}") int maxEntryBytes,
+                         @Value("${gateway.cache.retain-stale:5m}") Duration retainStale) {
+        this.maxEntryBytes = maxEntryBytes;
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedResponse response) -> key.length() + response.body().length)
+                .expireAfterWrite(retainStale)
+                .build();
+    }
+
+    public int maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    // Possibly stale; callers check isFresh
+    public CachedResponse get(String key) {
+        return entries.getIfPresent(key);
+    }
+
+    public void put(String key, CachedResponse response) {
+        entries.put(key, response);
+    }
+
+    // Registers the caller as the one fetching key; returns the existing flight instead if someone already is
+    public Sinks.One<CachedResponse> joinFlight(String key, Sinks.One<CachedResponse> flight) {
+        return inFlight.putIfAbsent(key, flight);
+    }
+
+    public void endFlight(String key, Sinks.One<CachedResponse> flight) {
+        inFlight.remove(key, flight);
+        flight.tryEmitEmpty();
+    }
+
+    // A write went through the route; drop everything cached for it rather than guess which reads it affects
+    public void invalidateRoute(String routeId) {
+        String prefix = routeId + " ";
+        entries.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.apigateway.cache;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Drops the cached task route whenever task-service reports a change on its event stream. agent-service
+ * and the outbox write to task-service directly, so the gateway never sees those writes as requests.
+ * While the stream is down, entries simply live out their TTL; on every (re)connect the route is
+ * dropped once, since changes may have been missed.
+ */
+@Component
+public class TaskChangeInvalidator {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskChangeInvalidator.class);
+
+    private final ResponseCache cache;
+    private final WebClient webClient;
+    private final String streamUrl;
+    private final String routeId;
+    private final boolean enabled;
+    private Disposable subscription;
+
+    public TaskChangeInvalidator(ResponseCache cache,
+                                 @Qualifier("dashboardWebClient") WebClient webClient,
+                                 @Value("${gateway.cache.invalidation.stream-url:http://task-service/api/tasks/stream}") String streamUrl,
+                                 @Value("${gateway.cache.invalidation.route:task-service}") String routeId,
+                                 @Value("${gateway.cache.invalidation.enabled:true}") boolean enabled) {
+        this.cache = cache;
+        this.webClient = webClient;
+        this.streamUrl = streamUrl;
+        this.routeId = routeId;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        subscription = webClient.get()
+                .uri(streamUrl)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .retrieve()
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() { })
+                .doOnSubscribe(s -> cache.invalidateRoute(routeId))
+                // Heartbeats are comments without an event name
+                .filter(event -> event.event() != null)
+                .doOnNext(event -> cache.invalidateRoute(routeId))
+                // The server closes the stream after its emitter timeout; reconnect
+                .repeatWhen(completions -> completions.delayElements(Duration.ofSeconds(1)))
+                .doOnError(error -> log.debug("Task change stream failed: {}", error.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+}
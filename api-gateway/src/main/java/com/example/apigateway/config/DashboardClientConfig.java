@@ -0,0 +1,46 @@
+package com.example.apigateway.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * WebClient for the dashboard's calls to the services. Hosts in its URLs are Eureka service ids,
+ * resolved per request by the load balancer like the gateway's lb:// routes.
+ */
+@Configuration
+public class DashboardClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider dashboardConnectionProvider(
+            @Value("${dashboard.client.max-connections:100}") int maxConnections,
+            @Value("${dashboard.client.pending-acquire-timeout:2s}") Duration pendingAcquireTimeout,
+            @Value("${dashboard.client.max-idle-time:30s}") Duration maxIdleTime) {
+        return ConnectionProvider.builder("dashboard")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .build();
+    }
+
+    @Bean
+    public WebClient dashboardWebClient(WebClient.Builder webClientBuilder,
+                                        ConnectionProvider dashboardConnectionProvider,
+                                        ReactorLoadBalancerExchangeFilterFunction loadBalancer,
+                                        @Value("${dashboard.client.connect-timeout:1s}") Duration connectTimeout) {
+        HttpClient httpClient = HttpClient.create(dashboardConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis());
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(loadBalancer)
+                .build();
+    }
+}
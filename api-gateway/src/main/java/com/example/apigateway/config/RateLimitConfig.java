@@ -0,0 +1,45 @@
+package com.example.apigateway.config;
+
+import com.example.apigateway.ratelimit.ClientKeyResolver;
+import com.example.apigateway.ratelimit.StripedTokenBucketStore;
+import com.example.apigateway.ratelimit.TokenBucketRateLimiter;
+import com.example.apigateway.ratelimit.TokenBucketStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Wires the RequestRateLimiter route filter: requests are keyed by client address (see
+ * {@link ClientKeyResolver}) and counted in token buckets held by a {@link TokenBucketStore}.
+ */
+@Configuration
+public class RateLimitConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(TokenBucketStore.class)
+    public TokenBucketStore tokenBucketStore(@Value("${gateway.rate-limit.stripes:64}") int stripes,
+                                             @Value("${gateway.rate-limit.max-keys:100000}") int maxKeys) {
+        return new StripedTokenBucketStore(stripes, maxKeys);
+    }
+
+    @Bean
+    public TokenBucketRateLimiter tokenBucketRateLimiter(TokenBucketStore store, ConfigurationService configurationService,
+                                                         @Value("${gateway.rate-limit.default-capacity:100}") long capacity,
+                                                         @Value("${gateway.rate-limit.default-refill-per-second:20}") double refillPerSecond) {
+        TokenBucketRateLimiter.Config defaults = new TokenBucketRateLimiter.Config()
+                .setCapacity(capacity)
+                .setRefillPerSecond(refillPerSecond);
+        return new TokenBucketRateLimiter(store, configurationService, defaults);
+    }
+
+    @Bean
+    public KeyResolver clientKeyResolver(@Value("${gateway.rate-limit.trusted-proxies:}") List<String> trustedProxies,
+                                         @Value("${gateway.rate-limit.user-header:}") String userHeader) {
+        return new ClientKeyResolver(trustedProxies, userHeader);
+    }
+}
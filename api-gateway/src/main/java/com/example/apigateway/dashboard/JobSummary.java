@@ -0,0 +1,7 @@
+package com.example.apigateway.dashboard;
+
+import java.time.Instant;
+
+// Latest analysis job of a task, as returned by agent-service's POST /api/agent/jobs/latest
+public record JobSummary(String taskId, String jobId, String status, Instant finishedAt, String error) {
+}
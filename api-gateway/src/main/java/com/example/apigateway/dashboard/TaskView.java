@@ -0,0 +1,10 @@
+package com.example.apigateway.dashboard;
+
+import java.util.List;
+
+// The task-service fields the teacher dashboard shows; anything else in the task document is ignored
+public record TaskView(String id, String title, String description, String subject, String teacherName,
+                       String studentId, List<String> studentIds, List<String> studentNames,
+                       boolean fileUploaded, boolean taskDone, boolean completed, String fileUrl, Double grade,
+                       String analysisReasoning, String analysisRecommendation, Double analysisConfidence) {
+}
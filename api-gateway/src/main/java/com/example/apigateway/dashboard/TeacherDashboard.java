@@ -0,0 +1,27 @@
+package com.example.apigateway.dashboard;
+
+import java.util.List;
+
+/**
+ * Everything the teacher page renders, in one response.
+ *
+ * @param teacher     null if user-service did not answer
+ * @param students    the students assigned to any of the tasks
+ * @param unavailable dependencies that failed or timed out; their parts of the payload are left empty
+ */
+public record TeacherDashboard(UserSummary teacher, List<Task> tasks, List<UserSummary> students, List<String> unavailable) {
+
+    public record Task(String id, String title, String description, String subject, String teacherName,
+                       List<String> studentIds, List<String> studentNames, boolean fileUploaded, boolean taskDone,
+                       boolean completed, String fileUrl, Double grade, Analysis analysis) {
+    }
+
+    /**
+     * The stored analysis of a task and the state of its latest analysis job.
+     *
+     * @param status ANALYZED when only a stored result exists, otherwise the latest job's status
+     *               (QUEUED, RUNNING, SUCCEEDED or FAILED)
+     */
+    public record Analysis(String status, Double confidence, String reasoning, String recommendation, String error) {
+    }
+}
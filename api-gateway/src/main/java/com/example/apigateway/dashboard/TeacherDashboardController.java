@@ -0,0 +1,24 @@
+package com.example.apigateway.dashboard;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+// Served by the gateway itself; handler mappings take precedence over the lb:// routes
+@RestController
+@RequestMapping("/api/dashboard")
+public class TeacherDashboardController {
+
+    private final TeacherDashboardService dashboardService;
+
+    public TeacherDashboardController(TeacherDashboardService dashboardService) {
+        this.dashboardService = dashboardService;
+    }
+
+    @GetMapping("/teacher/{teacherId}")
+    public Mono<TeacherDashboard> getTeacherDashboard(@PathVariable String teacherId) {
+        return dashboardService.teacherDashboard(teacherId);
+    }
+}
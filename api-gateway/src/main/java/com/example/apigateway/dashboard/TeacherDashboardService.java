@@ -0,0 +1,156 @@
+package com.example.apigateway.dashboard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the teacher dashboard from task-service, user-service and agent-service. The teacher and the
+ * teacher's tasks are fetched together; the assigned students and the latest analysis jobs then come
+ * from one batch call each, also in parallel. Every call has its own timeout. Only the tasks are
+ * required: if another dependency fails, its part of the payload is left empty and it is named in
+ * {@link TeacherDashboard#unavailable()}.
+ */
+@Service
+public class TeacherDashboardService {
+
+    private static final Logger log = LoggerFactory.getLogger(TeacherDashboardService.class);
+
+    private final WebClient webClient;
+    private final String taskServiceUrl;
+    private final String userServiceUrl;
+    private final String agentServiceUrl;
+    private final Duration tasksTimeout;
+    private final Duration usersTimeout;
+    private final Duration jobsTimeout;
+
+    public TeacherDashboardService(@Qualifier("dashboardWebClient") WebClient webClient,
+                                   @Value("${dashboard.task-service-url:http://task-service}") String taskServiceUrl,
+                                   @Value("${dashboard.user-service-url:http://user-service}") String userServiceUrl,
+                                   @Value("${dashboard.agent-service-url:http://agent-service}") String agentServiceUrl,
+                                   @Value("${dashboard.timeout.tasks:3s}") Duration tasksTimeout,
+                                   @Value("${dashboard.timeout.users:2s}") Duration usersTimeout,
+                                   @Value("${dashboard.timeout.jobs:2s}") Duration jobsTimeout) {
+        this.webClient = webClient;
+        this.taskServiceUrl = taskServiceUrl;
+        this.userServiceUrl = userServiceUrl;
+        this.agentServiceUrl = agentServiceUrl;
+        this.tasksTimeout = tasksTimeout;
+        this.usersTimeout = usersTimeout;
+        this.jobsTimeout = jobsTimeout;
+    }
+
+    public Mono<TeacherDashboard> teacherDashboard(String teacherId) {
+        List<String> unavailable = new CopyOnWriteArrayList<>();
+
+        Mono<List<TaskView>> tasks = webClient.get()
+                .uri(taskServiceUrl + "/api/tasks/teacher/{teacherId}", teacherId)
+                .retrieve()
+                .bodyToFlux(TaskView.class)
+                .collectList()
+                .timeout(tasksTimeout)
+                .onErrorMap(error -> !(error instanceof ResponseStatusException), error -> new ResponseStatusException(
+                        error instanceof TimeoutException ? HttpStatus.GATEWAY_TIMEOUT : HttpStatus.BAD_GATEWAY,
+                        "task-service unavailable", error));
+        Mono<Optional<UserSummary>> teacher = optional("user-service", usersTimeout, Optional.empty(), unavailable,
+                webClient.get()
+                        .uri(userServiceUrl + "/api/users/{teacherId}", teacherId)
+                        .retrieve()
+                        .bodyToMono(UserSummary.class)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty()));
+
+        return Mono.zip(tasks, teacher).flatMap(tasksAndTeacher -> {
+            List<TaskView> teacherTasks = tasksAndTeacher.getT1();
+            Set<String> studentIds = teacherTasks.stream()
+                    .flatMap(task -> assignees(task).stream())
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            List<String> taskIds = teacherTasks.stream().map(TaskView::id).collect(Collectors.toList());
+
+            Mono<List<UserSummary>> students = studentIds.isEmpty() ? Mono.just(List.of())
+                    : optional("user-service", usersTimeout, List.of(), unavailable, webClient.post()
+                            .uri(userServiceUrl + "/api/users/batch?fields=name,email,role")
+                            .bodyValue(studentIds)
+                            .retrieve()
+                            .bodyToFlux(UserSummary.class)
+                            .collectList());
+            Mono<List<JobSummary>> jobs = taskIds.isEmpty() ? Mono.just(List.of())
+                    : optional("agent-service", jobsTimeout, List.of(), unavailable, webClient.post()
+                            .uri(agentServiceUrl + "/api/agent/jobs/latest")
+                            .bodyValue(taskIds)
+                            .retrieve()
+                            .bodyToFlux(JobSummary.class)
+                            .collectList());
+
+            return Mono.zip(students, jobs).map(studentsAndJobs -> assemble(tasksAndTeacher.getT2().orElse(null),
+                    teacherTasks, studentsAndJobs.getT1(), studentsAndJobs.getT2(), unavailable));
+        });
+    }
+
+    private TeacherDashboard assemble(UserSummary teacher, List<TaskView> tasks, List<UserSummary> students,
+                                      List<JobSummary> jobs, List<String> unavailable) {
+        Map<String, UserSummary> studentsById = students.stream()
+                .collect(Collectors.toMap(UserSummary::id, Function.identity(), (first, second) -> first));
+        Map<String, JobSummary> jobsByTask = jobs.stream()
+                .collect(Collectors.toMap(JobSummary::taskId, Function.identity(), (first, second) -> first));
+
+        List<TeacherDashboard.Task> dashboardTasks = new ArrayList<>(tasks.size());
+        for (TaskView task : tasks) {
+            List<String> assignees = assignees(task);
+            List<String> names = new ArrayList<>(assignees.size());
+            for (int i = 0; i < assignees.size(); i++) {
+                UserSummary student = studentsById.get(assignees.get(i));
+                // Fall back to the name stored on the task when user-service did not answer for this id
+                String stored = task.studentNames() != null && i < task.studentNames().size() ? task.studentNames().get(i) : null;
+                names.add(student != null ? student.name() : stored);
+            }
+            dashboardTasks.add(new TeacherDashboard.Task(task.id(), task.title(), task.description(), task.subject(),
+                    teacher != null ? teacher.name() : task.teacherName(), assignees, names, task.fileUploaded(),
+                    task.taskDone(), task.completed(), task.fileUrl(), task.grade(), analysis(task, jobsByTask.get(task.id()))));
+        }
+        return new TeacherDashboard(teacher, dashboardTasks, students, List.copyOf(new LinkedHashSet<>(unavailable)));
+    }
+
+    private static TeacherDashboard.Analysis analysis(TaskView task, JobSummary job) {
+        boolean stored = task.analysisConfidence() != null || task.analysisReasoning() != null;
+        if (!stored && job == null) {
+            return null;
+        }
+        return new TeacherDashboard.Analysis(job != null ? job.status() : "ANALYZED", task.analysisConfidence(),
+                task.analysisReasoning(), task.analysisRecommendation(), job != null ? job.error() : null);
+    }
+
+    // Tasks carry either a list of students or, in older documents, a single studentId
+    private static List<String> assignees(TaskView task) {
+        if (task.studentIds() != null && !task.studentIds().isEmpty()) {
+            return task.studentIds();
+        }
+        return task.studentId() != null ? List.of(task.studentId()) : List.of();
+    }
+
+    private <T> Mono<T> optional(String dependency, Duration timeout, T fallback, List<String> unavailable, Mono<T> call) {
+        return call.timeout(timeout).onErrorResume(error -> {
+            log.warn("Dashboard call to {} failed: {}", dependency, error.toString());
+            unavailable.add(dependency);
+            return Mono.just(fallback);
+        });
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.apigateway.dashboard;
+
+public record UserSummary(String id, String name, String email, String role) {
+}
@@ -0,0 +1,274 @@
+package com.example.apigateway.filter;
+
+import com.example.apigateway.cache.CachedResponse;
+import com.example.apigateway.cache.ResponseCache;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Caches GET responses of a route for a short time: {@code filters[0]=ResponseCache=5s}.
+ *
+ * <p>Identical concurrent GETs share one upstream call. An expired entry with an ETag is revalidated
+ * upstream with If-None-Match, and clients sending a matching If-None-Match get a 304 from the gateway.
+ * Responses marked no-store, private or no-cache, carrying cookies, or larger than
+ * {@code gateway.cache.max-entry-bytes} are passed through uncached. Any successful write on the
+ * route drops the route's entries, except POSTs to {@code gateway.cache.read-only-paths}, which only
+ * read. Writes that bypass the gateway are picked up by {@link com.example.apigateway.cache.TaskChangeInvalidator}.
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    private static final String CACHE_STATUS_HEADER = "X-Cache";
+    private static final Pattern MAX_AGE = Pattern.compile("(?:s-maxage|max-age)=(\\d+)");
+    // Not replayed from the cache: hop-by-hop, recomputed per response, or added by the gateway itself
+    private static final Set<String> UNCACHED_HEADERS = Set.of(HttpHeaders.CONNECTION.toLowerCase(),
+            HttpHeaders.TRANSFER_ENCODING.toLowerCase(), HttpHeaders.CONTENT_LENGTH.toLowerCase(),
+            HttpHeaders.DATE.toLowerCase(), HttpHeaders.AGE.toLowerCase(), CACHE_STATUS_HEADER.toLowerCase(),
+            HttpHeaders.RETRY_AFTER.toLowerCase());
+    // Rate-limit headers describe the client whose request filled the entry, not the one it is replayed to
+    private static final String RATE_LIMIT_HEADER_PREFIX = "ratelimit-";
+
+    private final ResponseCache cache;
+    private final Duration coalesceTimeout;
+    private final List<String> readOnlyPaths;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public ResponseCacheGatewayFilterFactory(ResponseCache cache,
+                                             @Value("${gateway.cache.coalesce-timeout:10s}") Duration coalesceTimeout,
+                                             @Value("${gateway.cache.read-only-paths:}") List<String> readOnlyPaths) {
+        super(Config.class);
+        this.cache = cache;
+        this.coalesceTimeout = coalesceTimeout;
+        this.readOnlyPaths = readOnlyPaths.stream().map(String::trim).filter(path -> !path.isEmpty()).toList();
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("ttl");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Must wrap the response before NettyWriteResponseFilter writes the upstream body into it
+        return new OrderedGatewayFilter((exchange, chain) -> filter(exchange, chain, config.getTtl()),
+                NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain, Duration ttl) {
+        ServerHttpRequest request = exchange.getRequest();
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "";
+        if (request.getMethod() != HttpMethod.GET) {
+            if (request.getMethod() == HttpMethod.HEAD || request.getMethod() == HttpMethod.OPTIONS || isReadOnlyPost(request)) {
+                return chain.filter(exchange);
+            }
+            return chain.filter(exchange).doOnSuccess(done -> {
+                HttpStatus status = HttpStatus.resolve(statusCode(exchange.getResponse()));
+                if (status != null && status.is2xxSuccessful()) {
+                    cache.invalidateRoute(routeId);
+                }
+            });
+        }
+        String requestCacheControl = String.join(",", request.getHeaders().getOrEmpty(HttpHeaders.CACHE_CONTROL));
+        if (requestCacheControl.contains("no-store") || request.getHeaders().containsKey(HttpHeaders.RANGE)) {
+            return chain.filter(exchange);
+        }
+
+        String key = key(routeId, request);
+        CachedResponse cached = cache.get(key);
+        if (cached != null && cached.isFresh(System.nanoTime()) && !requestCacheControl.contains("no-cache")) {
+            return serve(request, exchange.getResponse(), cached, "HIT");
+        }
+
+        Sinks.One<CachedResponse> flight = Sinks.one();
+        Sinks.One<CachedResponse> leader = cache.joinFlight(key, flight);
+        if (leader != null) {
+            // Someone is already fetching this; use their result, or go upstream alone if it was not cacheable
+            return leader.asMono()
+                    .timeout(coalesceTimeout)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .onErrorResume(TimeoutException.class, e -> Mono.just(Optional.empty()))
+                    .flatMap(result -> result.isPresent()
+                            ? serve(request, exchange.getResponse(), result.get(), "COALESCED")
+                            : chain.filter(exchange));
+        }
+        return fetch(exchange, chain, key, cached, ttl, flight)
+                .doFinally(signal -> cache.endFlight(key, flight));
+    }
+
+    private boolean isReadOnlyPost(ServerHttpRequest request) {
+        String path = request.getURI().getRawPath();
+        return request.getMethod() == HttpMethod.POST && readOnlyPaths.stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    private Mono<Void> fetch(ServerWebExchange exchange, GatewayFilterChain chain, String key,
+                             CachedResponse stale, Duration ttl, Sinks.One<CachedResponse> flight) {
+        // The client's own validators are answered here; upstream only sees the gateway's copy's ETag
+        ServerHttpRequest upstreamRequest = exchange.getRequest().mutate().headers(headers -> {
+            headers.remove(HttpHeaders.IF_NONE_MATCH);
+            headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+            if (stale != null && stale.etag() != null) {
+                headers.setIfNoneMatch(stale.etag());
+            }
+        }).build();
+        CachingResponse response = new CachingResponse(exchange.getRequest(), exchange.getResponse(), key, stale, ttl, flight);
+        return chain.filter(exchange.mutate().request(upstreamRequest).response(response).build());
+    }
+
+    private Mono<Void> serve(ServerHttpRequest request, ServerHttpResponse response, CachedResponse cached, String outcome) {
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(cached.headers());
+        headers.set(CACHE_STATUS_HEADER, outcome);
+        headers.set(HttpHeaders.AGE, Long.toString(cached.ageSeconds(System.nanoTime())));
+        List<String> ifNoneMatch = request.getHeaders().getIfNoneMatch();
+        if (cached.etag() != null && (ifNoneMatch.contains(cached.etag()) || ifNoneMatch.contains("*"))) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            headers.remove(HttpHeaders.CONTENT_TYPE);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatus.OK);
+        headers.setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    // Freshness lifetime allowed by the upstream response, capped by the route's TTL; null when not cacheable
+    private Duration freshFor(HttpHeaders headers, Duration ttl) {
+        String cacheControl = String.join(",", headers.getOrEmpty(HttpHeaders.CACHE_CONTROL));
+        if (cacheControl.contains("no-store") || cacheControl.contains("private") || cacheControl.contains("no-cache")
+                || headers.containsKey(HttpHeaders.SET_COOKIE) || headers.getOrEmpty(HttpHeaders.VARY).contains("*")) {
+            return null;
+        }
+        Matcher maxAge = MAX_AGE.matcher(cacheControl);
+        Duration fresh = maxAge.find() ? min(ttl, Duration.ofSeconds(Long.parseLong(maxAge.group(1)))) : ttl;
+        return fresh.isZero() || fresh.isNegative() ? null : fresh;
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static String key(String routeId, ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        // Authorization is part of the key so one caller's response is never served to another
+        return routeId + " " + request.getURI().getRawPath() + "?" + Optional.ofNullable(request.getURI().getRawQuery()).orElse("")
+                + " " + String.join(",", headers.getOrEmpty(HttpHeaders.ACCEPT))
+                + " " + Integer.toHexString(String.join(",", headers.getOrEmpty(HttpHeaders.AUTHORIZATION)).hashCode());
+    }
+
+    private static int statusCode(ServerHttpResponse response) {
+        return response.getStatusCode() != null ? response.getStatusCode().value() : 200;
+    }
+
+    // Copies a cacheable upstream body as it streams to the client, or answers a 304 revalidation from the stale copy
+    private class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerHttpRequest clientRequest;
+        private final String key;
+        private final CachedResponse stale;
+        private final Duration ttl;
+        private final Sinks.One<CachedResponse> flight;
+
+        CachingResponse(ServerHttpRequest clientRequest, ServerHttpResponse delegate, String key,
+                        CachedResponse stale, Duration ttl, Sinks.One<CachedResponse> flight) {
+            super(delegate);
+            this.clientRequest = clientRequest;
+            this.key = key;
+            this.stale = stale;
+            this.ttl = ttl;
+            this.flight = flight;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            int status = statusCode(this);
+            Duration fresh = freshFor(getHeaders(), ttl);
+            if (status == HttpStatus.NOT_MODIFIED.value() && stale != null) {
+                long now = System.nanoTime();
+                CachedResponse renewed = stale.renew(now, fresh != null ? fresh.toNanos() : 0);
+                cache.put(key, renewed);
+                flight.tryEmitValue(renewed);
+                return Flux.from(body).doOnNext(DataBufferUtils::release)
+                        .then(serve(clientRequest, getDelegate(), renewed, "REVALIDATED"));
+            }
+            getHeaders().set(CACHE_STATUS_HEADER, "MISS");
+            if (status != HttpStatus.OK.value() || fresh == null) {
+                return super.writeWith(body);
+            }
+
+            HttpHeaders stored = new HttpHeaders();
+            getHeaders().forEach((name, values) -> {
+                String lower = name.toLowerCase();
+                if (!UNCACHED_HEADERS.contains(lower) && !lower.startsWith("access-control-") && !lower.startsWith(RATE_LIMIT_HEADER_PREFIX)) {
+                    stored.put(name, List.copyOf(values));
+                }
+            });
+            String etag = getHeaders().getETag();
+            ByteArrayOutputStream copy = new ByteArrayOutputStream();
+            boolean[] tooLarge = {false};
+            Flux<? extends DataBuffer> tee = Flux.from(body).doOnNext(buffer -> {
+                int length = buffer.readableByteCount();
+                if (tooLarge[0] || copy.size() + length > cache.maxEntryBytes()) {
+                    tooLarge[0] = true;
+                    return;
+                }
+                byte[] bytes = new byte[length];
+                int position = buffer.readPosition();
+                buffer.read(bytes);
+                buffer.readPosition(position);
+                copy.write(bytes, 0, length);
+            });
+            return super.writeWith(tee).doOnSuccess(done -> {
+                if (!tooLarge[0]) {
+                    long now = System.nanoTime();
+                    CachedResponse entry = new CachedResponse(stored, copy.toByteArray(), etag, now, now + fresh.toNanos());
+                    cache.put(key, entry);
+                    flight.tryEmitValue(entry);
+                }
+            });
+        }
+    }
+
+    public static class Config {
+
+        private Duration ttl = Duration.ofSeconds(5);
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.apigateway.ratelimit;
+
+/**
+ * Outcome of one token request against a bucket.
+ *
+ * @param allowed         whether the tokens were taken
+ * @param remaining       whole tokens left after the request
+ * @param retryAfterNanos time until the requested tokens would be available; 0 when allowed
+ * @param resetNanos      time until the bucket is full again
+ */
+public record BucketState(boolean allowed, long remaining, long retryAfterNanos, long resetNanos) {
+}
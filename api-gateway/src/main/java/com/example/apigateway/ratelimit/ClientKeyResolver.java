@@ -0,0 +1,135 @@
+package com.example.apigateway.ratelimit;
+
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Rate-limit key for a request: the client address, as reported by a trusted proxy in front of the
+ * gateway (the frontend nginx pods), or the connection's peer address otherwise.
+ *
+ * <p>Headers are only read from trusted proxies, since any client can send them. X-Real-IP comes first:
+ * nginx overwrites it with the address it was connected from. X-Forwarded-For is the fallback, taking the
+ * rightmost entry that is not itself a trusted proxy. A user header is only used when configured, which
+ * should be done only behind a proxy that authenticates the user and overwrites that header.
+ */
+public class ClientKeyResolver implements KeyResolver {
+
+    private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+
+    private final List<Cidr> trustedProxies = new ArrayList<>();
+    private final String userHeader;
+
+    public ClientKeyResolver(List<String> trustedProxies, String userHeader) {
+        for (String cidr : trustedProxies) {
+            if (StringUtils.hasText(cidr)) {
+                this.trustedProxies.add(Cidr.parse(cidr.trim()));
+            }
+        }
+        this.userHeader = StringUtils.hasText(userHeader) ? userHeader.trim() : null;
+    }
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        InetAddress peer = remote != null ? remote.getAddress() : null;
+        String peerAddress = peer != null ? peer.getHostAddress() : "unknown";
+        if (peer == null || !isTrusted(peer)) {
+            return Mono.just("ip:" + peerAddress);
+        }
+
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        if (userHeader != null && StringUtils.hasText(headers.getFirst(userHeader))) {
+            return Mono.just("user:" + headers.getFirst(userHeader).trim());
+        }
+        String realIp = headers.getFirst("X-Real-IP");
+        if (parse(realIp) != null) {
+            return Mono.just("ip:" + realIp.trim());
+        }
+        String client = forwardedClient(headers.getFirst("X-Forwarded-For"));
+        return Mono.just("ip:" + (client != null ? client : peerAddress));
+    }
+
+    // Rightmost X-Forwarded-For entry not added by a trusted proxy (entries left of it may be forged)
+    private String forwardedClient(String forwardedFor) {
+        if (!StringUtils.hasText(forwardedFor)) {
+            return null;
+        }
+        String[] hops = forwardedFor.split(",");
+        String leftmost = null;
+        for (int i = hops.length - 1; i >= 0; i--) {
+            InetAddress hop = parse(hops[i]);
+            if (hop == null) {
+                return null;
+            }
+            if (!isTrusted(hop)) {
+                return hop.getHostAddress();
+            }
+            leftmost = hop.getHostAddress();
+        }
+        return leftmost;
+    }
+
+    private boolean isTrusted(InetAddress address) {
+        for (Cidr cidr : trustedProxies) {
+            if (cidr.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Only IP literals: InetAddress.getByName would do a DNS lookup for anything else
+    private static InetAddress parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        String address = value.trim();
+        if (!IPV4.matcher(address).matches() && !address.contains(":")) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(address);
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private record Cidr(byte[] network, int prefix) {
+
+        static Cidr parse(String cidr) {
+            int slash = cidr.indexOf('/');
+            InetAddress address = ClientKeyResolver.parse(slash < 0 ? cidr : cidr.substring(0, slash));
+            if (address == null) {
+                throw new IllegalArgumentException("Not an IP address or CIDR range: " + cidr);
+            }
+            byte[] network = address.getAddress();
+            int prefix = slash < 0 ? network.length * 8 : Integer.parseInt(cidr.substring(slash + 1));
+            return new Cidr(network, prefix);
+        }
+
+        boolean contains(InetAddress address) {
+            byte[] bytes = address.getAddress();
+            if (bytes.length != network.length) {
+                return false;
+            }
+            int remaining = prefix;
+            for (int i = 0; i < bytes.length && remaining > 0; i++, remaining -= 8) {
+                int mask = remaining >= 8 ? 0xFF : (0xFF << (8 - remaining)) & 0xFF;
+                if ((bytes[i] & mask) != (network[i] & mask)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
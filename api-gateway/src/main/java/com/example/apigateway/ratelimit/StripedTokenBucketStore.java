@@ -0,0 +1,93 @@
+package com.example.apigateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory token buckets split over independently locked stripes, so requests for different keys
+ * rarely contend. Each stripe keeps its least recently used buckets up to a fixed count; an evicted
+ * bucket comes back full, which is what an idle client's bucket would be anyway.
+ */
+public class StripedTokenBucketStore implements TokenBucketStore {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final Stripe[] stripes;
+    private final LongSupplier nanoTime;
+
+    public StripedTokenBucketStore(int stripeCount, int maxKeys) {
+        this(stripeCount, maxKeys, System::nanoTime);
+    }
+
+    StripedTokenBucketStore(int stripeCount, int maxKeys, LongSupplier nanoTime) {
+        // Rounded up to a power of two so a mask picks the stripe
+        int count = stripeCount <= 1 ? 1 : Integer.highestOneBit((stripeCount - 1) << 1);
+        this.stripes = new Stripe[count];
+        int keysPerStripe = Math.max(1, maxKeys / count);
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(keysPerStripe);
+        }
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public Mono<BucketState> tryConsume(String key, long capacity, double refillPerSecond, long tokens) {
+        return Mono.fromSupplier(() -> consume(key, capacity, refillPerSecond, tokens));
+    }
+
+    BucketState consume(String key, long capacity, double refillPerSecond, long tokens) {
+        Stripe stripe = stripes[spread(key.hashCode()) & (stripes.length - 1)];
+        long now = nanoTime.getAsLong();
+        synchronized (stripe) {
+            Bucket bucket = stripe.buckets.computeIfAbsent(key, k -> new Bucket(capacity, now));
+            double perNano = refillPerSecond / NANOS_PER_SECOND;
+            bucket.tokens = Math.min(capacity, bucket.tokens + (now - bucket.refilledAt) * perNano);
+            bucket.refilledAt = now;
+
+            boolean allowed = bucket.tokens >= tokens;
+            if (allowed) {
+                bucket.tokens -= tokens;
+            }
+            long retryAfter = allowed ? 0 : nanosFor(tokens - bucket.tokens, perNano);
+            long reset = nanosFor(capacity - bucket.tokens, perNano);
+            return new BucketState(allowed, (long) Math.floor(bucket.tokens), retryAfter, reset);
+        }
+    }
+
+    private static long nanosFor(double missingTokens, double perNano) {
+        if (missingTokens <= 0) {
+            return 0;
+        }
+        return perNano > 0 ? (long) Math.ceil(missingTokens / perNano) : Long.MAX_VALUE;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Bucket {
+        double tokens;
+        long refilledAt;
+
+        Bucket(long capacity, long now) {
+            this.tokens = capacity;
+            this.refilledAt = now;
+        }
+    }
+
+    private static final class Stripe {
+        final Map<String, Bucket> buckets;
+
+        Stripe(int maxKeys) {
+            this.buckets = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                    return size() > maxKeys;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.apigateway.ratelimit;
+
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-bucket limiter for the built-in RequestRateLimiter filter. Limits are set per route through
+ * the filter's {@code token-bucket-rate-limiter.*} args; routes without them use the defaults given
+ * here. Buckets are kept per route and key, so a client's task reads never eat into its analysis budget.
+ * Responses carry RateLimit-Limit, RateLimit-Remaining and RateLimit-Reset, plus Retry-After when rejected.
+ */
+public class TokenBucketRateLimiter extends AbstractRateLimiter<TokenBucketRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "token-bucket-rate-limiter";
+
+    private final TokenBucketStore store;
+    private final Config defaultConfig;
+
+    public TokenBucketRateLimiter(TokenBucketStore store, ConfigurationService configurationService, Config defaultConfig) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.store = store;
+        this.defaultConfig = defaultConfig;
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        return store.tryConsume(routeId + ":" + id, config.getCapacity(), config.getRefillPerSecond(), config.getRequestedTokens())
+                .map(state -> new Response(state.allowed(), headers(config, state)));
+    }
+
+    private Map<String, String> headers(Config config, BucketState state) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("RateLimit-Limit", Long.toString(config.getCapacity()));
+        headers.put("RateLimit-Remaining", Long.toString(state.remaining()));
+        headers.put("RateLimit-Reset", Long.toString(toSeconds(state.resetNanos())));
+        if (!state.allowed()) {
+            headers.put("Retry-After", Long.toString(Math.max(1, toSeconds(state.retryAfterNanos()))));
+        }
+        return headers;
+    }
+
+    private static long toSeconds(long nanos) {
+        return nanos == Long.MAX_VALUE ? Long.MAX_VALUE : (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    public static class Config {
+
+        // Burst size: requests a client can make at once after being idle
+        private long capacity = 100;
+        // Sustained rate once the burst is spent
+        private double refillPerSecond = 20;
+        // Tokens taken per request, to make some routes count more than others
+        private long requestedTokens = 1;
+
+        public long getCapacity() {
+            return capacity;
+        }
+
+        public Config setCapacity(long capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        public double getRefillPerSecond() {
+            return refillPerSecond;
+        }
+
+        public Config setRefillPerSecond(double refillPerSecond) {
+            this.refillPerSecond = refillPerSecond;
+            return this;
+        }
+
+        public long getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public Config setRequestedTokens(long requestedTokens) {
+            this.requestedTokens = requestedTokens;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.apigateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Where token buckets live. The default {@link StripedTokenBucketStore} keeps them in this gateway
+ * instance, so each replica enforces its own share of a limit. A store backed by a shared service
+ * (Redis, Hazelcast) can be dropped in as a bean of this type to enforce limits across replicas.
+ */
+public interface TokenBucketStore {
+
+    // Refills the bucket for the elapsed time, then takes tokens if that many are available
+    Mono<BucketState> tryConsume(String key, long capacity, double refillPerSecond, long tokens);
+}
@@ -0,0 +1,142 @@
+package com.example.apigateway.filter;
+
+import com.example.apigateway.cache.ResponseCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResponseCacheGatewayFilterFactoryTest {
+
+    private static final Route ROUTE = Route.async().id("task-service").uri("http://task-service").predicate(exchange -> true).build();
+
+    private final ResponseCache cache = new ResponseCache(1 << 20, 1 << 16, Duration.ofMinutes(5));
+    private final ResponseCacheGatewayFilterFactory factory =
+            new ResponseCacheGatewayFilterFactory(cache, Duration.ofSeconds(5), List.of("/api/users/batch"));
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    @Test
+    void servesHitsWithoutTheFirstClientsRateLimitHeaders() {
+        GatewayFilter filter = filter(Duration.ofSeconds(30));
+        MockServerWebExchange first = get("/api/tasks");
+        filter.filter(first, upstream(Mono.empty())).block();
+        assertEquals("MISS", first.getResponse().getHeaders().getFirst("X-Cache"));
+
+        MockServerWebExchange second = get("/api/tasks");
+        filter.filter(second, upstream(Mono.empty())).block();
+        assertEquals(1, upstreamCalls.get());
+        assertEquals("HIT", second.getResponse().getHeaders().getFirst("X-Cache"));
+        assertEquals("[1]", second.getResponse().getBodyAsString().block());
+        assertNull(second.getResponse().getHeaders().getFirst("RateLimit-Remaining"));
+        assertNull(second.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void concurrentMissesShareOneUpstreamCall() {
+        GatewayFilter filter = filter(Duration.ofSeconds(30));
+        Sinks.Empty<Void> gate = Sinks.empty();
+        MockServerWebExchange leader = get("/api/tasks");
+        MockServerWebExchange follower = get("/api/tasks");
+
+        Mono<Void> leading = filter.filter(leader, upstream(gate.asMono())).cache();
+        leading.subscribe();
+        Mono<Void> following = filter.filter(follower, upstream(Mono.empty())).cache();
+        following.subscribe();
+        gate.tryEmitEmpty();
+        leading.block(Duration.ofSeconds(5));
+        following.block(Duration.ofSeconds(5));
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals("COALESCED", follower.getResponse().getHeaders().getFirst("X-Cache"));
+        assertEquals("[1]", follower.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void revalidatesAnExpiredEntryWithItsETag() throws InterruptedException {
+        GatewayFilter filter = filter(Duration.ofMillis(1));
+        filter.filter(get("/api/tasks"), upstream(Mono.empty())).block();
+        Thread.sleep(10);
+
+        MockServerWebExchange revalidated = get("/api/tasks");
+        filter.filter(revalidated, upstream(Mono.empty())).block();
+        assertEquals(2, upstreamCalls.get());
+        assertEquals("REVALIDATED", revalidated.getResponse().getHeaders().getFirst("X-Cache"));
+        assertEquals("[1]", revalidated.getResponse().getBodyAsString().block());
+
+        MockServerWebExchange conditional = MockServerWebExchange.from(MockServerHttpRequest.get("/api/tasks").ifNoneMatch("\"v1\""));
+        conditional.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, ROUTE);
+        filter(Duration.ofSeconds(30)).filter(conditional, upstream(Mono.empty())).block();
+        assertEquals(HttpStatus.NOT_MODIFIED, conditional.getResponse().getStatusCode());
+    }
+
+    @Test
+    void writesEvictTheRouteButReadOnlyPostsDoNot() {
+        GatewayFilter filter = filter(Duration.ofSeconds(30));
+        filter.filter(get("/api/tasks"), upstream(Mono.empty())).block();
+
+        filter.filter(write(HttpMethod.POST, "/api/users/batch"), upstream(Mono.empty())).block();
+        MockServerWebExchange afterRead = get("/api/tasks");
+        filter.filter(afterRead, upstream(Mono.empty())).block();
+        assertEquals("HIT", afterRead.getResponse().getHeaders().getFirst("X-Cache"));
+
+        filter.filter(write(HttpMethod.PUT, "/api/tasks/1"), upstream(Mono.empty())).block();
+        MockServerWebExchange afterWrite = get("/api/tasks");
+        filter.filter(afterWrite, upstream(Mono.empty())).block();
+        assertEquals("MISS", afterWrite.getResponse().getHeaders().getFirst("X-Cache"));
+    }
+
+    private GatewayFilter filter(Duration ttl) {
+        ResponseCacheGatewayFilterFactory.Config config = new ResponseCacheGatewayFilterFactory.Config();
+        config.setTtl(ttl);
+        return factory.apply(config);
+    }
+
+    // Answers 304 to a matching If-None-Match, otherwise 200 with a small body, after gate completes
+    private GatewayFilterChain upstream(Mono<Void> gate) {
+        return exchange -> {
+            upstreamCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            return gate.then(Mono.defer(() -> {
+                response.getHeaders().setETag("\"v1\"");
+                response.getHeaders().set("RateLimit-Remaining", "7");
+                if (exchange.getRequest().getHeaders().getIfNoneMatch().contains("\"v1\"")) {
+                    response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                    return response.writeWith(Flux.empty());
+                }
+                response.setStatusCode(HttpStatus.OK);
+                return response.writeWith(Mono.just(response.bufferFactory().wrap("[1]".getBytes(StandardCharsets.UTF_8))));
+            }));
+        };
+    }
+
+    private static MockServerWebExchange get(String path) {
+        return withRoute(MockServerWebExchange.from(MockServerHttpRequest.get(path)));
+    }
+
+    private static MockServerWebExchange write(HttpMethod method, String path) {
+        return withRoute(MockServerWebExchange.from(MockServerHttpRequest.method(method, path)));
+    }
+
+    private static MockServerWebExchange withRoute(MockServerWebExchange exchange) {
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, ROUTE);
+        return exchange;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.apigateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ClientKeyResolverTest {
+
+    private final ClientKeyResolver resolver = new ClientKeyResolver(List.of("10.0.0.0/8", "::1"), null);
+
+    @Test
+    void usesRealIpFromTrustedProxy() {
+        assertEquals("ip:203.0.113.7", resolve("10.1.2.3", "X-Real-IP", "203.0.113.7"));
+    }
+
+    @Test
+    void ignoresHeadersFromUntrustedPeers() {
+        assertEquals("ip:198.51.100.1", resolve("198.51.100.1", "X-Real-IP", "203.0.113.7"));
+        assertEquals("ip:198.51.100.1", resolve("198.51.100.1", "X-Forwarded-For", "203.0.113.7"));
+    }
+
+    @Test
+    void takesRightmostUntrustedForwardedHop() {
+        assertEquals("ip:203.0.113.7", resolve("10.1.2.3", "X-Forwarded-For", "1.1.1.1, 203.0.113.7, 10.9.9.9"));
+        assertEquals("ip:10.0.0.5", resolve("10.1.2.3", "X-Forwarded-For", "10.0.0.5"));
+    }
+
+    @Test
+    void userHeaderOnlyWhenConfiguredAndFromTrustedProxy() {
+        assertEquals("ip:203.0.113.7", resolve("10.1.2.3", "X-User-Id", "u1", "X-Real-IP", "203.0.113.7"));
+
+        ClientKeyResolver withUsers = new ClientKeyResolver(List.of("10.0.0.0/8"), "X-User-Id");
+        assertEquals("user:u1", withUsers.resolve(exchange("10.1.2.3", "X-User-Id", "u1")).block());
+        assertEquals("ip:198.51.100.1", withUsers.resolve(exchange("198.51.100.1", "X-User-Id", "u1")).block());
+    }
+
+    @Test
+    void ignoresNonAddressHeaderValues() {
+        assertEquals("ip:10.1.2.3", resolve("10.1.2.3", "X-Real-IP", "example.com"));
+    }
+
+    private String resolve(String peer, String... headers) {
+        return resolver.resolve(exchange(peer, headers)).block();
+    }
+
+    private static MockServerWebExchange exchange(String peer, String... headers) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/tasks")
+                .remoteAddress(new InetSocketAddress(peer, 40000));
+        for (int i = 0; i < headers.length; i += 2) {
+            request.header(headers[i], headers[i + 1]);
+        }
+        return MockServerWebExchange.from(request);
+    }
+}
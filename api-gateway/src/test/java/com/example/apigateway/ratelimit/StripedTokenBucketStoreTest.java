@@ -0,0 +1,72 @@
+package com.example.apigateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedTokenBucketStoreTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong now = new AtomicLong(1_000 * SECOND);
+
+    @Test
+    void allowsTheBurstThenRejectsWithRetryAfter() {
+        StripedTokenBucketStore store = new StripedTokenBucketStore(4, 100, now::get);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(store.consume("a", 3, 1.0, 1).allowed());
+        }
+        BucketState rejected = store.consume("a", 3, 1.0, 1);
+        assertFalse(rejected.allowed());
+        assertEquals(0, rejected.remaining());
+        assertEquals(SECOND, rejected.retryAfterNanos());
+        assertEquals(3 * SECOND, rejected.resetNanos());
+    }
+
+    @Test
+    void refillsWithElapsedTimeUpToCapacity() {
+        StripedTokenBucketStore store = new StripedTokenBucketStore(4, 100, now::get);
+        assertTrue(store.consume("a", 2, 2.0, 2).allowed());
+        assertFalse(store.consume("a", 2, 2.0, 1).allowed());
+
+        now.addAndGet(SECOND / 2);
+        assertTrue(store.consume("a", 2, 2.0, 1).allowed());
+        assertFalse(store.consume("a", 2, 2.0, 1).allowed());
+
+        now.addAndGet(60 * SECOND);
+        assertEquals(1, store.consume("a", 2, 2.0, 1).remaining());
+    }
+
+    @Test
+    void keysHaveSeparateBuckets() {
+        StripedTokenBucketStore store = new StripedTokenBucketStore(1, 100, now::get);
+        assertTrue(store.consume("a", 1, 1.0, 1).allowed());
+        assertFalse(store.consume("a", 1, 1.0, 1).allowed());
+        assertTrue(store.consume("b", 1, 1.0, 1).allowed());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedKeysAsFullBuckets() {
+        StripedTokenBucketStore store = new StripedTokenBucketStore(1, 2, now::get);
+        assertTrue(store.consume("a", 1, 1.0, 1).allowed());
+        assertTrue(store.consume("b", 1, 1.0, 1).allowed());
+        assertFalse(store.consume("a", 1, 1.0, 1).allowed());
+
+        // "b" is now the least recently used and makes room for "c"
+        assertTrue(store.consume("c", 1, 1.0, 1).allowed());
+        assertTrue(store.consume("b", 1, 1.0, 1).allowed());
+    }
+
+    @Test
+    void zeroRefillNeverResets() {
+        StripedTokenBucketStore store = new StripedTokenBucketStore(1, 10, now::get);
+        assertTrue(store.consume("a", 1, 0.0, 1).allowed());
+        BucketState rejected = store.consume("a", 1, 0.0, 1);
+        assertFalse(rejected.allowed());
+        assertEquals(Long.MAX_VALUE, rejected.retryAfterNanos());
+    }
+}
@@ -0,0 +1,36 @@
+#!/bin/bash
+# Throughput / p99 benchmark for the platform vs virtual thread modes (see VIRTUAL_THREADS.md).
+# Requires `hey` (https://github.com/rakyll/hey). Run it once per mode against the same data set:
+#
+#   ./benchmark-threads.sh http://localhost:8081/api/tasks platform
+#   ./benchmark-threads.sh http://localhost:8081/api/tasks virtual
+#
+# Each concurrency level runs for DURATION after a short warm-up; results go to benchmark-<mode>.csv.
+
+URL=${1:?usage: $0 <url> <label>}
+LABEL=${2:?usage: $0 <url> <label>}
+DURATION=${DURATION:-30s}
+LEVELS=${LEVELS:-"50 200 400 800"}
+OUT="benchmark-${LABEL}.csv"
+
+command -v hey >/dev/null || { echo "hey is not installed"; exit 1; }
+
+echo "concurrency,requests_per_sec,p50_ms,p99_ms,errors" > "$OUT"
+hey -z 10s -c 20 "$URL" > /dev/null # warm-up (JIT, connection pools, caches)
+
+for C in $LEVELS; do
+  RESULT=$(hey -z "$DURATION" -c "$C" "$URL")
+  RPS=$(echo "$RESULT" | awk '/Requests\/sec/ {print $2}')
+  P50=$(echo "$RESULT" | awk '/50% in/ {printf "%.1f", $3 * 1000}')
+  P99=$(echo "$RESULT" | awk '/99% in/ {printf "%.1f", $3 * 1000}')
+  # Non-2xx responses plus transport errors (timeouts, refused connections)
+  ERRORS=$(echo "$RESULT" | awk '
+    /Status code distribution/ {s = 1; e = 0; next}
+    /Error distribution/ {e = 1; s = 0; next}
+    s && /responses/ {gsub(/[][]/, "", $1); if ($1 !~ /^2/) sum += $2}
+    e && /^ *\[/ {gsub(/[][]/, "", $1); sum += $1}
+    END {print sum + 0}')
+  echo "$C,$RPS,$P50,$P99,$ERRORS" | tee -a "$OUT"
+done
+
+echo "Results written to $OUT"
@@ -0,0 +1,24 @@
+package com.example.taskservice.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers invalidations synchronously within this JVM only. Used when no shared channel is
+ * configured; other replicas then rely on the cache TTL to pick up changes.
+ */
+public class InMemoryTaskCacheInvalidationChannel implements TaskCacheInvalidationChannel {
+
+    private final List<Consumer<TaskInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(TaskInvalidation invalidation) {
+        listeners.forEach(listener -> listener.accept(invalidation));
+    }
+
+    @Override
+    public void subscribe(Consumer<TaskInvalidation> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.taskservice.cache;
+
+import com.example.taskservice.model.Task;
+import com.example.taskservice.model.TaskFields;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded read-through cache for tasks by id and for the per-user task lists. Writers report what
+ * they changed and the resulting invalidation is routed through the {@link TaskCacheInvalidationChannel}
+ * so that every replica evicts the same entries.
+ *
+ * <p>Entries are futures so that Mongo loads run on the calling thread outside Caffeine's map lock;
+ * a loader running inside {@code Cache.get} would pin a virtual thread's carrier for the whole query.
+ * Concurrent misses for one key still share a single load.
+ *
+ * <p>Lists are stored with the {@link TaskVersions} tag read before they were loaded. A list cached at
+ * another version than the caller's (a write on another replica, or one whose eviction has not arrived
+ * yet) is reloaded, so a list is never served under a newer tag than its contents.
+ */
+@Slf4j
+public class TaskCache {
+
+    private static final String USER_LIST = "user:";
+    private static final String STUDENT_LIST = "student:";
+    private static final String TEACHER_LIST = "teacher:";
+
+    private final AsyncCache<String, Task> tasksById;
+    private final AsyncCache<String, VersionedTasks> tasksByUser;
+    private final TaskCacheInvalidationChannel channel;
+
+    public TaskCache(long maxTasks, long maxUserLists, Duration ttl, TaskCacheInvalidationChannel channel) {
+        this.tasksById = Caffeine.newBuilder().maximumSize(maxTasks).expireAfterWrite(ttl).recordStats().buildAsync();
+        this.tasksByUser = Caffeine.newBuilder().maximumSize(maxUserLists).expireAfterWrite(ttl).recordStats().buildAsync();
+        this.channel = channel;
+        channel.subscribe(this::evict);
+    }
+
+    // Exposes size, hit, miss and eviction counters as cache.* meters tagged with the cache name
+    public void bindMetrics(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, tasksById, "tasks.byId");
+        CaffeineCacheMetrics.monitor(registry, tasksByUser, "tasks.byUser");
+    }
+
+    public Task getTask(String id, Function<String, Task> loader) {
+        return load(tasksById, id, () -> loader.apply(id));
+    }
+
+    public VersionedTasks getUserTasks(String userId, String version, Supplier<List<Task>> loader) {
+        return loadList(USER_LIST + userId, version, loader);
+    }
+
+    public VersionedTasks getStudentTasks(String studentId, String version, Supplier<List<Task>> loader) {
+        return loadList(STUDENT_LIST + studentId, version, loader);
+    }
+
+    public VersionedTasks getTeacherTasks(String teacherId, String version, Supplier<List<Task>> loader) {
+        return loadList(TEACHER_LIST + teacherId, version, loader);
+    }
+
+    private VersionedTasks loadList(String key, String version, Supplier<List<Task>> loader) {
+        Supplier<VersionedTasks> versioned = () -> new VersionedTasks(version, List.copyOf(loader.get()));
+        VersionedTasks cached = load(tasksByUser, key, versioned);
+        if (cached.version().equals(version)) {
+            return cached;
+        }
+        // Loaded at another version: replace it once. A concurrent reload may win, and its list is
+        // returned with its own version, which still matches its contents.
+        tasksByUser.synchronous().asMap().remove(key, cached);
+        return load(tasksByUser, key, versioned);
+    }
+
+    // The map lock is only held to install an empty future; the first caller then loads outside it.
+    // Null results and failures are not kept: Caffeine drops futures that complete that way.
+    private static <V> V load(AsyncCache<String, V> cache, String key, Supplier<V> loader) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> future = cache.get(key, (k, executor) -> created);
+        if (future == created) {
+            try {
+                created.complete(loader.get());
+            } catch (RuntimeException | Error e) {
+                created.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Invalidates a task after a write. Pass the stored state from before the write (if known) and
+     * after it (null for deletes) so lists of users added to or removed from the task are dropped too.
+     */
+    public void taskChanged(Task before, Task after) {
+        Set<String> taskIds = new HashSet<>();
+        Set<String> userIds = new HashSet<>();
+        for (Task task : new Task[]{before, after}) {
+            if (task != null) {
+                if (task.getId() != null) {
+                    taskIds.add(task.getId());
+                }
+                userIds.addAll(TaskFields.assignees(task));
+            }
+        }
+        channel.publish(new TaskInvalidation(taskIds, userIds, false));
+    }
+
+    // For writes whose affected users are unknown; drops the listed tasks and every user list
+    public void tasksChanged(Collection<String> taskIds) {
+        channel.publish(new TaskInvalidation(Set.copyOf(taskIds), Set.of(), true));
+    }
+
+    private void evict(TaskInvalidation invalidation) {
+        // Also drops loads still in flight, so a read that started before the write is not kept
+        tasksById.synchronous().invalidateAll(invalidation.taskIds());
+        if (invalidation.allLists()) {
+            tasksByUser.synchronous().invalidateAll();
+            return;
+        }
+        for (String userId : invalidation.userIds()) {
+            tasksByUser.synchronous().invalidate(USER_LIST + userId);
+            tasksByUser.synchronous().invalidate(STUDENT_LIST + userId);
+            tasksByUser.synchronous().invalidate(TEACHER_LIST + userId);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.taskservice.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries cache invalidations between task-service replicas. Implementations must also deliver a
+ * published invalidation to the subscribers of the publishing replica.
+ */
+public interface TaskCacheInvalidationChannel {
+
+    void publish(TaskInvalidation invalidation);
+
+    void subscribe(Consumer<TaskInvalidation> listener);
+}
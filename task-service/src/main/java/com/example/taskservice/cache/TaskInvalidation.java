@@ -0,0 +1,10 @@
+package com.example.taskservice.cache;
+
+import java.util.Set;
+
+/**
+ * Describes which cached entries a write made stale. When {@code allLists} is set every per-user
+ * list is dropped, which is used when the affected users are not known (e.g. bulk patches).
+ */
+public record TaskInvalidation(Set<String> taskIds, Set<String> userIds, boolean allLists) {
+}
@@ -0,0 +1,64 @@
+package com.example.taskservice.cache;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Version counters behind the weak ETags of the task list endpoints. The counters live in the Mongo
+ * counters collection, so every replica answers the same tag, and move on every invalidation published
+ * through the {@link TaskCacheInvalidationChannel}, i.e. in the write path before the write returns.
+ * A 304 costs one read by _id; tags are read before the listed data so a tag never runs ahead of the body.
+ */
+public class TaskVersions {
+
+    static final String COLLECTION = "counters";
+    private static final String ALL_TASKS = "tasks";
+    private static final String ALL_USERS = "tasks:all-users";
+    private static final String USER = "tasks:user:";
+
+    private final MongoTemplate mongoTemplate;
+
+    public TaskVersions(MongoTemplate mongoTemplate, TaskCacheInvalidationChannel channel) {
+        this.mongoTemplate = mongoTemplate;
+        channel.subscribe(this::bump);
+    }
+
+    public String collectionTag() {
+        return "W/\"" + read(List.of(ALL_TASKS)).getOrDefault(ALL_TASKS, 0L) + "\"";
+    }
+
+    public String userTag(String userId) {
+        Map<String, Long> counters = read(List.of(ALL_USERS, USER + userId));
+        return "W/\"" + counters.getOrDefault(ALL_USERS, 0L) + "-" + counters.getOrDefault(USER + userId, 0L) + "\"";
+    }
+
+    private Map<String, Long> read(List<String> ids) {
+        Map<String, Long> counters = new HashMap<>();
+        mongoTemplate.find(new Query(Criteria.where("_id").in(ids)), Document.class, COLLECTION)
+                .forEach(counter -> counters.put(counter.getString("_id"), ((Number) counter.get("value")).longValue()));
+        return counters;
+    }
+
+    private void bump(TaskInvalidation invalidation) {
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+        Update increment = new Update().inc("value", 1);
+        operations.upsert(byId(ALL_TASKS), increment);
+        if (invalidation.allLists()) {
+            operations.upsert(byId(ALL_USERS), increment);
+        }
+        invalidation.userIds().forEach(userId -> operations.upsert(byId(USER + userId), increment));
+        operations.execute();
+    }
+
+    private static Query byId(String id) {
+        return new Query(Criteria.where("_id").is(id));
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.taskservice.cache;
+
+import com.example.taskservice.model.Task;
+
+import java.util.List;
+
+/**
+ * A cached task list together with the {@link TaskVersions} tag that was current when it was loaded,
+ * which is the ETag to send with it.
+ */
+public record VersionedTasks(String version, List<Task> tasks) {
+}
@@ -0,0 +1,42 @@
+package com.example.taskservice.config;
+
+import com.example.taskservice.cache.InMemoryTaskCacheInvalidationChannel;
+import com.example.taskservice.cache.TaskCache;
+import com.example.taskservice.cache.TaskCacheInvalidationChannel;
+import com.example.taskservice.cache.TaskVersions;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+
+@Configuration
+public class TaskCacheConfig {
+
+    // Replaced by defining another TaskCacheInvalidationChannel bean (e.g. one backed by a message broker)
+    @Bean
+    @ConditionalOnMissingBean
+    public TaskCacheInvalidationChannel taskCacheInvalidationChannel() {
+        return new InMemoryTaskCacheInvalidationChannel();
+    }
+
+    @Bean
+    public TaskCache taskCache(TaskCacheInvalidationChannel channel,
+                               ObjectProvider<MeterRegistry> meterRegistry,
+                               @Value("${task.cache.max-tasks:10000}") long maxTasks,
+                               @Value("${task.cache.max-user-lists:2000}") long maxUserLists,
+                               @Value("${task.cache.ttl:5m}") Duration ttl) {
+        TaskCache cache = new TaskCache(maxTasks, maxUserLists, ttl, channel);
+        meterRegistry.ifAvailable(cache::bindMetrics);
+        return cache;
+    }
+
+    @Bean
+    public TaskVersions taskVersions(MongoTemplate mongoTemplate, TaskCacheInvalidationChannel channel) {
+        return new TaskVersions(mongoTemplate, channel);
+    }
+}
@@ -0,0 +1,348 @@
+package com.example.taskservice.controller;
+
+import com.example.taskservice.cache.TaskVersions;
+import com.example.taskservice.model.BulkResult;
+import com.example.taskservice.model.Task;
+import com.example.taskservice.model.TaskChangeEvent;
+import com.example.taskservice.model.TaskFields;
+import com.example.taskservice.model.TaskPage;
+import com.example.taskservice.model.TaskStats;
+import com.example.taskservice.repository.ReactiveTaskRepository;
+import com.example.taskservice.repository.TaskCriteria;
+import com.example.taskservice.service.TaskBulkService;
+import com.example.taskservice.service.TaskChangeNotifier;
+import com.example.taskservice.service.TaskEventStream;
+import com.example.taskservice.service.TaskArchive;
+import com.example.taskservice.service.TaskStatsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking implementation of the task API on Netty and reactive Mongo, active with the "reactive"
+ * profile. Routes, parameters and response bodies match TaskController. Reads go straight to Mongo
+ * (the Caffeine read-through cache is blocking); writes still evict it and move the ETag versions.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/tasks")
+@Profile("reactive")
+public class ReactiveTaskController {
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+    // Buffers requested ahead from the request body while the bulk parser reads it
+    private static final int BULK_BODY_DEMAND = 16;
+
+    @Autowired
+    private ReactiveTaskRepository taskRepository;
+
+    @Autowired
+    private TaskBulkService taskBulkService;
+
+    @Autowired
+    private TaskVersions taskVersions;
+
+    @Autowired
+    private TaskEventStream taskEventStream;
+
+    @Autowired
+    private TaskChangeNotifier taskChangeNotifier;
+
+    @Autowired
+    private TaskStatsService taskStatsService;
+
+    @Autowired
+    private TaskArchive taskArchive;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${task.events.heartbeat-ms:25000}")
+    private long heartbeatMs;
+
+    @GetMapping
+    public Mono<ResponseEntity<Flux<Object>>> getAllTasks(@RequestParam(required = false) String fields, ServerWebExchange exchange) {
+        Set<String> projection = parseFields(fields);
+        return withTag(taskVersions::collectionTag, exchange, () -> projection.isEmpty()
+                ? taskRepository.findAll().cast(Object.class)
+                : taskRepository.streamAll(projection).map(task -> TaskFields.project(task, projection, objectMapper)));
+    }
+
+    // Keyset pagination on _id: GET /api/tasks?limit=50&after=<nextCursor>&fields=id,title,taskDone
+    @GetMapping(params = "limit")
+    public Mono<TaskPage> getTaskPage(@RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                      @RequestParam(required = false) String after,
+                                      @RequestParam(required = false) String fields) {
+        return findPage(null, limit, after, fields);
+    }
+
+    // One JSON document per line, written as the reactive cursor emits them
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Object> exportTasks(@RequestParam(required = false) String fields) {
+        Set<String> projection = parseFields(fields);
+        return taskRepository.streamAll(projection).map(task -> TaskFields.project(task, projection, objectMapper));
+    }
+
+    // Server-sent events for changes to the user's tasks (or to all tasks when userId is omitted)
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<TaskChangeEvent>> streamTaskChanges(@RequestParam(required = false) String userId) {
+        Flux<ServerSentEvent<TaskChangeEvent>> events = taskEventStream.events(userId)
+                .map(event -> ServerSentEvent.builder(event).event(event.getType()).id(event.getTaskId()).build());
+        // Comment lines keep idle connections open through the gateway and nginx
+        Flux<ServerSentEvent<TaskChangeEvent>> heartbeats = Flux.interval(Duration.ofMillis(heartbeatMs))
+                .map(tick -> ServerSentEvent.<TaskChangeEvent>builder().comment("heartbeat").build());
+        return Flux.merge(events, heartbeats);
+    }
+
+    // Relevance-ranked text search over title, subject and description; same cursor format as TaskController
+    @GetMapping("/search")
+    public Mono<TaskPage> searchTasks(@RequestParam String q,
+                                      @RequestParam(required = false) String teacherId,
+                                      @RequestParam(defaultValue = "" + DEFAULT_SEARCH_PAGE_SIZE) int limit,
+                                      @RequestParam(required = false) String after) {
+        int offset = TaskController.parseSearchCursor(q, after);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return taskRepository.search(q, teacherId, offset, pageSize + 1)
+                .collectList()
+                .map(tasks -> TaskController.searchPage(tasks, offset, pageSize));
+    }
+
+    // The stats pipelines run on the blocking template, so they are moved off the event loop
+    @GetMapping("/stats")
+    public Mono<TaskStats> getTaskStats(@RequestParam(required = false) String teacherId) {
+        return Mono.fromCallable(() -> taskStatsService.summary(teacherId)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @GetMapping("/stats/{dimension}")
+    public Mono<List<TaskStats>> getTaskStatsBy(@PathVariable String dimension, @RequestParam(required = false) String teacherId) {
+        if (!TaskStatsService.DIMENSIONS.contains(dimension)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Stats are available by " + TaskStatsService.DIMENSIONS);
+        }
+        return Mono.fromCallable(() -> taskStatsService.stats(dimension, teacherId)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @GetMapping("/{id}")
+    public Mono<Task> getTaskById(@PathVariable String id) {
+        return taskRepository.findById(id).switchIfEmpty(archived(id));
+    }
+
+    @GetMapping("/user/{userId}")
+    public Mono<ResponseEntity<Flux<Task>>> getTasksByUserId(@PathVariable String userId, ServerWebExchange exchange) {
+        return withTag(() -> taskVersions.userTag(userId), exchange, () -> taskRepository.findMatching(TaskCriteria.forUser(userId)));
+    }
+
+    @GetMapping(value = "/user/{userId}", params = "limit")
+    public Mono<TaskPage> getTaskPageByUserId(@PathVariable String userId,
+                                              @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                              @RequestParam(required = false) String after,
+                                              @RequestParam(required = false) String fields) {
+        return findPage(TaskCriteria.forUser(userId), limit, after, fields);
+    }
+
+    @GetMapping("/teacher/{teacherId}")
+    public Mono<ResponseEntity<Flux<Task>>> getTasksByTeacherId(@PathVariable String teacherId, ServerWebExchange exchange) {
+        return withTag(() -> taskVersions.userTag(teacherId), exchange, () -> taskRepository.findByTeacherIdOrderByIdAsc(teacherId));
+    }
+
+    @GetMapping("/student/{studentId}")
+    public Mono<ResponseEntity<Flux<Task>>> getTasksByStudentId(@PathVariable String studentId, ServerWebExchange exchange) {
+        return withTag(() -> taskVersions.userTag(studentId), exchange, () -> taskRepository.findMatching(TaskCriteria.forStudent(studentId)));
+    }
+
+    @PostMapping
+    public Mono<Task> createTask(@RequestBody Task task) {
+        task.setUpdatedAt(new Date());
+        return taskRepository.save(task)
+                .flatMap(savedTask -> blocking(() -> taskChangeNotifier.changed("created", null, savedTask)).thenReturn(savedTask));
+    }
+
+    // The bulk parser reads an InputStream, so it runs on boundedElastic fed by the request body buffers
+    @PostMapping("/bulk")
+    public Mono<BulkResult> createTasks(@RequestBody Flux<DataBuffer> body) {
+        return bulk(body, in -> () -> taskBulkService.createAll(in));
+    }
+
+    @PatchMapping("/bulk")
+    public Mono<BulkResult> patchTasks(@RequestBody Flux<DataBuffer> body) {
+        return bulk(body, in -> () -> taskBulkService.patchAll(in));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<Task> updateTask(@PathVariable String id, @RequestBody Task task,
+                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        task.setId(id);
+        // One atomic replace that moves the version forward; with If-Match it only applies at that version (409 otherwise).
+        // A "version" in the body is ignored: pages PUT back whole objects read long before.
+        Long expectedVersion = expectedVersion(ifMatch);
+        return taskRepository.replace(task, expectedVersion)
+                // A versioned replace needs the current document; bring an archived task back and retry
+                .switchIfEmpty(Mono.defer(() -> expectedVersion == null ? Mono.empty()
+                        : unarchived(id).flatMap(restored -> restored ? taskRepository.replace(task, expectedVersion) : Mono.empty())))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(existing -> {
+                    if (existing.isEmpty() && expectedVersion != null) {
+                        return taskRepository.existsById(id).flatMap(exists -> Mono.<Task>error(exists
+                                ? new ResponseStatusException(HttpStatus.CONFLICT, "Task " + id + " was modified concurrently")
+                                : new ResponseStatusException(HttpStatus.NOT_FOUND, "Task not found: " + id)));
+                    }
+                    Long version = existing.map(Task::getVersion).orElse(null);
+                    task.setVersion(existing.isEmpty() || version == null ? 1L : version + 1);
+                    Mono<Void> notify = blocking(() -> taskChangeNotifier.changed(existing.isPresent() ? "updated" : "created", existing.orElse(null), task));
+                    if (existing.isPresent()) {
+                        return notify.thenReturn(task);
+                    }
+                    // The id may belong to an archived task; the new hot copy replaces it
+                    return notify.then(blocking(() -> taskArchive.deleteById(id))).thenReturn(task);
+                });
+    }
+
+    // Applies only the given fields with a single atomic $set. Send "version" to fail with 409 if the task changed meanwhile.
+    @PatchMapping("/{id}")
+    public Mono<Task> patchTask(@PathVariable String id, @RequestBody Map<String, Object> changes) {
+        Map<String, Object> fields = new HashMap<>(changes);
+        Long expectedVersion = fields.remove("version") instanceof Number version ? version.longValue() : null;
+        Map<String, Object> update;
+        try {
+            update = TaskFields.toUpdate(fields, objectMapper);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        log.info("Patching task {} (expected version {}): {}", id, expectedVersion, update.keySet());
+
+        // Reassigning a task changes whose lists it appears in, so remember the previous assignees
+        Mono<Optional<Task>> existing = update.keySet().stream().anyMatch(TaskFields.ASSIGNMENT::contains)
+                ? taskRepository.findById(id).map(Optional::of).defaultIfEmpty(Optional.empty())
+                : Mono.just(Optional.empty());
+        return existing.flatMap(before -> taskRepository.applyPatch(id, update, expectedVersion)
+                // Archived tasks are moved back to the hot collection and patched there
+                .switchIfEmpty(Mono.defer(() -> unarchived(id)
+                        .flatMap(restored -> restored ? taskRepository.applyPatch(id, update, expectedVersion) : Mono.empty())))
+                .flatMap(patched -> blocking(() -> taskChangeNotifier.changed("updated", before.orElse(null), patched)).thenReturn(patched))
+                .switchIfEmpty(taskRepository.existsById(id).flatMap(exists -> Mono.error(exists
+                        ? new ResponseStatusException(HttpStatus.CONFLICT, "Task " + id + " was modified concurrently")
+                        : new ResponseStatusException(HttpStatus.NOT_FOUND, "Task not found: " + id)))));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<Void> deleteTask(@PathVariable String id) {
+        return taskRepository.findById(id)
+                .switchIfEmpty(archived(id))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(existing -> taskRepository.deleteById(id)
+                        .then(blocking(() -> taskArchive.deleteById(id)))
+                        .then(blocking(() -> taskChangeNotifier.deleted(id, existing.orElse(null)))))
+                .then();
+    }
+
+    // The archive is only reachable through the blocking template
+    private Mono<Task> archived(String id) {
+        return Mono.fromCallable(() -> taskArchive.findById(id).orElse(null)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Boolean> unarchived(String id) {
+        return Mono.fromCallable(() -> taskArchive.unarchive(id)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // Reads the version counter (blocking template) before the data, so the tag never runs ahead of the body
+    private <T> Mono<ResponseEntity<Flux<T>>> withTag(Callable<String> version, ServerWebExchange exchange, Supplier<Flux<T>> query) {
+        return Mono.fromCallable(version)
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(tag -> exchange.checkNotModified(tag)
+                        ? this.<T>notModified(tag)
+                        : ResponseEntity.ok().eTag(tag).body(query.get()));
+    }
+
+    // If-Match carries the task version, quoted and optionally weak: "3" or W/"3"
+    private Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        String tag = ifMatch.trim().replaceFirst("^W/", "").replace("\"", "");
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match must be a task version, got " + ifMatch);
+        }
+    }
+
+    // The archive and the version counters behind the notifier use the blocking template, so they run off the event loop
+    private Mono<Void> blocking(Runnable work) {
+        return Mono.fromRunnable(work).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+
+    private <T> ResponseEntity<Flux<T>> notModified(String tag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tag).build();
+    }
+
+    private Mono<TaskPage> findPage(Criteria filter, int limit, String after, String fields) {
+        Set<String> projection = parseFields(fields);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        // Fetch one extra document to find out whether another page exists
+        return taskRepository.findPage(filter, after, pageSize + 1, projection)
+                .collectList()
+                .map(tasks -> {
+                    String nextCursor = null;
+                    if (tasks.size() > pageSize) {
+                        tasks = tasks.subList(0, pageSize);
+                        nextCursor = tasks.get(pageSize - 1).getId();
+                    }
+                    List<Object> items = tasks.stream()
+                            .map(task -> TaskFields.project(task, projection, objectMapper))
+                            .collect(Collectors.toList());
+                    return new TaskPage(items, nextCursor);
+                });
+    }
+
+    private Mono<BulkResult> bulk(Flux<DataBuffer> body, Function<InputStream, Callable<BulkResult>> operation) {
+        return Mono.fromCallable(() -> {
+                    try (InputStream in = DataBufferUtils.subscriberInputStream(body, BULK_BODY_DEMAND)) {
+                        return operation.apply(in).call();
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()))
+                .map(taskChangeNotifier::bulkChanged);
+    }
+
+    private Set<String> parseFields(String fields) {
+        try {
+            return TaskFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
@@ -1,86 +1,369 @@
 package com.example.taskservice.controller;
 
+import com.example.taskservice.cache.TaskCache;
+import com.example.taskservice.cache.TaskVersions;
+import com.example.taskservice.cache.VersionedTasks;
+import com.example.taskservice.model.BulkResult;
 import com.example.taskservice.model.Task;
+import com.example.taskservice.model.TaskFields;
+import com.example.taskservice.model.TaskPage;
+import com.example.taskservice.model.TaskStats;
+import com.example.taskservice.repository.TaskCriteria;
 import com.example.taskservice.repository.TaskRepository;
+import com.example.taskservice.service.TaskBulkService;
+import com.example.taskservice.service.TaskChangeNotifier;
+import com.example.taskservice.service.TaskEventStream;
+import com.example.taskservice.service.TaskArchive;
+import com.example.taskservice.service.TaskStatsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+// Servlet implementation of the task API; the "reactive" profile serves the same contract from ReactiveTaskController
 @Slf4j
 @RestController
 @RequestMapping("/api/tasks")
+@Profile("!reactive")
 public class TaskController {
     
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    
     @Autowired
     private TaskRepository taskRepository;
     
+    @Autowired
+    private TaskBulkService taskBulkService;
+    
+    @Autowired
+    private TaskCache taskCache;
+    
+    @Autowired
+    private TaskVersions taskVersions;
+    
+    @Autowired
+    private TaskEventStream taskEventStream;
+    
+    @Autowired
+    private TaskChangeNotifier taskChangeNotifier;
+    
+    @Autowired
+    private TaskStatsService taskStatsService;
+    
+    @Autowired
+    private TaskArchive taskArchive;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @GetMapping
-    public List<Task> getAllTasks() {
-        return taskRepository.findAll();
+    public List<?> getAllTasks(@RequestParam(required = false) String fields, WebRequest request) {
+        // Answers 304 from the version counter alone when nothing changed since the client's copy
+        if (request.checkNotModified(taskVersions.collectionTag())) {
+            return null;
+        }
+        Set<String> projection = parseFields(fields);
+        if (projection.isEmpty()) {
+            return taskRepository.findAll();
+        }
+        try (Stream<Task> tasks = taskRepository.streamAll(projection)) {
+            return tasks.map(task -> TaskFields.project(task, projection, objectMapper)).collect(Collectors.toList());
+        }
+    }
+    
+    // Keyset pagination on _id: GET /api/tasks?limit=50&after=<nextCursor>&fields=id,title,taskDone
+    @GetMapping(params = "limit")
+    public TaskPage getTaskPage(@RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                @RequestParam(required = false) String after,
+                                @RequestParam(required = false) String fields) {
+        return findPage(null, limit, after, fields);
+    }
+    
+    // Writes one JSON document per line as the Mongo cursor yields them, without buffering the collection
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportTasks(@RequestParam(required = false) String fields) {
+        Set<String> projection = parseFields(fields);
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<Task> tasks = taskRepository.streamAll(projection)) {
+                Iterator<Task> iterator = tasks.iterator();
+                while (iterator.hasNext()) {
+                    writeLine(outputStream, TaskFields.project(iterator.next(), projection, objectMapper));
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+    
+    // Server-sent events for changes to the user's tasks (or to all tasks when userId is omitted)
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTaskChanges(@RequestParam(required = false) String userId) {
+        return taskEventStream.subscribe(userId);
+    }
+    
+    // Relevance-ranked text search over title, subject and description: GET /api/tasks/search?q=essay&teacherId=...&limit=20
+    @GetMapping("/search")
+    public TaskPage searchTasks(@RequestParam String q,
+                                @RequestParam(required = false) String teacherId,
+                                @RequestParam(defaultValue = "" + DEFAULT_SEARCH_PAGE_SIZE) int limit,
+                                @RequestParam(required = false) String after) {
+        int offset = parseSearchCursor(q, after);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Task> tasks = taskRepository.search(q, teacherId, offset, pageSize + 1);
+        return searchPage(tasks, offset, pageSize);
+    }
+    
+    // Completion rate, average grade and average confidence over all tasks, or one teacher's with ?teacherId=
+    @GetMapping("/stats")
+    public TaskStats getTaskStats(@RequestParam(required = false) String teacherId) {
+        return taskStatsService.summary(teacherId);
+    }
+    
+    // The same figures per subject, per student or per teacher: GET /api/tasks/stats/subjects?teacherId=...
+    @GetMapping("/stats/{dimension}")
+    public List<TaskStats> getTaskStatsBy(@PathVariable String dimension, @RequestParam(required = false) String teacherId) {
+        if (!TaskStatsService.DIMENSIONS.contains(dimension)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Stats are available by " + TaskStatsService.DIMENSIONS);
+        }
+        return taskStatsService.stats(dimension, teacherId);
     }
     
     @GetMapping("/{id}")
     public Task getTaskById(@PathVariable String id) {
-        return taskRepository.findById(id).orElse(null);
+        // Tasks not in the hot collection may have been archived
+        return taskCache.getTask(id, key -> taskRepository.findById(key).or(() -> taskArchive.findById(key)).orElse(null));
     }
     
     @GetMapping("/user/{userId}")
-    public List<Task> getTasksByUserId(@PathVariable String userId) {
-        // Get tasks where user is teacher or student
-        List<Task> teacherTasks = taskRepository.findByTeacherId(userId);
-        List<Task> studentTasks = taskRepository.findByStudentId(userId);
-        List<Task> studentIdsTasks = taskRepository.findByStudentIdsContaining(userId);
-        
-        // Combine and deduplicate using a map
-        java.util.Map<String, Task> taskMap = new java.util.HashMap<>();
-        teacherTasks.forEach(task -> taskMap.put(task.getId(), task));
-        studentTasks.forEach(task -> taskMap.putIfAbsent(task.getId(), task));
-        studentIdsTasks.forEach(task -> taskMap.putIfAbsent(task.getId(), task));
-        
-        return new java.util.ArrayList<>(taskMap.values());
+    public ResponseEntity<List<Task>> getTasksByUserId(@PathVariable String userId, WebRequest request) {
+        String version = taskVersions.userTag(userId);
+        if (request.checkNotModified(version)) {
+            return null;
+        }
+        // Tasks where user is teacher or student, in one indexed $or query
+        return versioned(taskCache.getUserTasks(userId, version, () -> taskRepository.findMatching(TaskCriteria.forUser(userId))));
+    }
+    
+    @GetMapping(value = "/user/{userId}", params = "limit")
+    public TaskPage getTaskPageByUserId(@PathVariable String userId,
+                                        @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                        @RequestParam(required = false) String after,
+                                        @RequestParam(required = false) String fields) {
+        return findPage(TaskCriteria.forUser(userId), limit, after, fields);
     }
     
     @GetMapping("/teacher/{teacherId}")
-    public List<Task> getTasksByTeacherId(@PathVariable String teacherId) {
-        return taskRepository.findByTeacherId(teacherId);
+    public ResponseEntity<List<Task>> getTasksByTeacherId(@PathVariable String teacherId, WebRequest request) {
+        String version = taskVersions.userTag(teacherId);
+        if (request.checkNotModified(version)) {
+            return null;
+        }
+        return versioned(taskCache.getTeacherTasks(teacherId, version, () -> taskRepository.findByTeacherIdOrderByIdAsc(teacherId)));
     }
     
     @GetMapping("/student/{studentId}")
-    public List<Task> getTasksByStudentId(@PathVariable String studentId) {
-        // Get tasks where studentId matches or is in studentIds list
-        List<Task> byStudentId = taskRepository.findByStudentId(studentId);
-        List<Task> byStudentIds = taskRepository.findByStudentIdsContaining(studentId);
-        
-        // Combine and deduplicate using a map
-        java.util.Map<String, Task> taskMap = new java.util.HashMap<>();
-        byStudentId.forEach(task -> taskMap.put(task.getId(), task));
-        byStudentIds.forEach(task -> taskMap.putIfAbsent(task.getId(), task));
-        
-        return new java.util.ArrayList<>(taskMap.values());
+    public ResponseEntity<List<Task>> getTasksByStudentId(@PathVariable String studentId, WebRequest request) {
+        String version = taskVersions.userTag(studentId);
+        if (request.checkNotModified(version)) {
+            return null;
+        }
+        // Tasks where studentId matches or is in studentIds list
+        return versioned(taskCache.getStudentTasks(studentId, version, () -> taskRepository.findMatching(TaskCriteria.forStudent(studentId))));
     }
     
     @PostMapping
     public Task createTask(@RequestBody Task task) {
-        return taskRepository.save(task);
+        task.setUpdatedAt(new Date());
+        Task savedTask = taskRepository.save(task);
+        taskChangeNotifier.changed("created", null, savedTask);
+        return savedTask;
+    }
+    
+    // Body is a JSON array of tasks, read item by item and inserted in unordered batches
+    @PostMapping("/bulk")
+    public BulkResult createTasks(HttpServletRequest request) throws IOException {
+        try {
+            return taskChangeNotifier.bulkChanged(taskBulkService.createAll(request.getInputStream()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+    
+    // Body is a JSON array of {"id": ..., "version"?: ..., <fields to set>} objects
+    @PatchMapping("/bulk")
+    public BulkResult patchTasks(HttpServletRequest request) throws IOException {
+        try {
+            return taskChangeNotifier.bulkChanged(taskBulkService.patchAll(request.getInputStream()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
     
     @PutMapping("/{id}")
-    public Task updateTask(@PathVariable String id, @RequestBody Task task) {
+    public Task updateTask(@PathVariable String id, @RequestBody Task task,
+                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Updating task {}: fileUploaded={}, taskDone={}, analysisReasoning={}, analysisRecommendation={}, analysisConfidence={}", 
                 id, task.isFileUploaded(), task.isTaskDone(), 
                 task.getAnalysisReasoning(), task.getAnalysisRecommendation(), task.getAnalysisConfidence());
         task.setId(id);
-        Task savedTask = taskRepository.save(task);
+        // One atomic replace that moves the version forward; with If-Match it only applies at that version (409 otherwise).
+        // A "version" in the body is ignored: pages PUT back whole objects read long before.
+        Long expectedVersion = expectedVersion(ifMatch);
+        Task existing = taskRepository.replace(task, expectedVersion);
+        if (existing == null && expectedVersion != null && taskArchive.unarchive(id)) {
+            // A versioned replace needs the current document; bring an archived task back and retry
+            existing = taskRepository.replace(task, expectedVersion);
+        }
+        if (existing == null && expectedVersion != null) {
+            if (!taskRepository.existsById(id)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Task not found: " + id);
+            }
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Task " + id + " was modified concurrently");
+        }
+        task.setVersion(existing == null || existing.getVersion() == null ? 1L : existing.getVersion() + 1);
+        if (existing == null) {
+            // The id may belong to an archived task; the new hot copy replaces it
+            taskArchive.deleteById(id);
+        }
+        taskChangeNotifier.changed(existing == null ? "created" : "updated", existing, task);
         log.info("Task {} saved successfully with analysis fields: reasoning={}, recommendation={}, confidence={}", 
-                id, savedTask.getAnalysisReasoning(), savedTask.getAnalysisRecommendation(), savedTask.getAnalysisConfidence());
-        return savedTask;
+                id, task.getAnalysisReasoning(), task.getAnalysisRecommendation(), task.getAnalysisConfidence());
+        return task;
+    }
+    
+    // Applies only the given fields with a single atomic $set. Send "version" to fail with 409 if the task changed meanwhile.
+    @PatchMapping("/{id}")
+    public Task patchTask(@PathVariable String id, @RequestBody Map<String, Object> changes) {
+        Map<String, Object> fields = new HashMap<>(changes);
+        Long expectedVersion = fields.remove("version") instanceof Number version ? version.longValue() : null;
+        Map<String, Object> update;
+        try {
+            update = TaskFields.toUpdate(fields, objectMapper);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        log.info("Patching task {} (expected version {}): {}", id, expectedVersion, update.keySet());
+        
+        // Reassigning a task changes whose lists it appears in, so remember the previous assignees
+        Task existing = update.keySet().stream().anyMatch(TaskFields.ASSIGNMENT::contains)
+                ? taskRepository.findById(id).orElse(null) : null;
+        Task patched = taskRepository.applyPatch(id, update, expectedVersion);
+        if (patched == null && taskArchive.unarchive(id)) {
+            // Archived tasks are moved back to the hot collection and patched there
+            patched = taskRepository.applyPatch(id, update, expectedVersion);
+        }
+        if (patched == null) {
+            if (!taskRepository.existsById(id)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Task not found: " + id);
+            }
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Task " + id + " was modified concurrently");
+        }
+        taskChangeNotifier.changed("updated", existing, patched);
+        return patched;
     }
     
     @DeleteMapping("/{id}")
     public void deleteTask(@PathVariable String id) {
+        Task existing = taskRepository.findById(id).or(() -> taskArchive.findById(id)).orElse(null);
         taskRepository.deleteById(id);
+        taskArchive.deleteById(id);
+        taskChangeNotifier.deleted(id, existing);
+    }
+    
+    private TaskPage findPage(Criteria filter, int limit, String after, String fields) {
+        Set<String> projection = parseFields(fields);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        
+        // Fetch one extra document to find out whether another page exists
+        List<Task> tasks = taskRepository.findPage(filter, after, pageSize + 1, projection);
+        String nextCursor = null;
+        if (tasks.size() > pageSize) {
+            tasks = tasks.subList(0, pageSize);
+            nextCursor = tasks.get(pageSize - 1).getId();
+        }
+        List<Object> items = tasks.stream()
+                .map(task -> TaskFields.project(task, projection, objectMapper))
+                .collect(Collectors.toList());
+        return new TaskPage(items, nextCursor);
+    }
+    
+    // Relevance order has no stable key to continue from, so the search cursor is the offset of the next page
+    static int parseSearchCursor(String q, String after) {
+        if (q.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "q must not be blank");
+        }
+        try {
+            int offset = after == null ? 0 : Integer.parseInt(after);
+            if (offset < 0) {
+                throw new NumberFormatException();
+            }
+            return offset;
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid search cursor: " + after);
+        }
+    }
+    
+    // One extra match was fetched to find out whether another page exists
+    static TaskPage searchPage(List<Task> tasks, int offset, int pageSize) {
+        if (tasks.size() <= pageSize) {
+            return new TaskPage(tasks, null);
+        }
+        return new TaskPage(tasks.subList(0, pageSize), Integer.toString(offset + pageSize));
+    }
+    
+    // If-Match carries the task version, quoted and optionally weak: "3" or W/"3"
+    private Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        String tag = ifMatch.trim().replaceFirst("^W/", "").replace("\"", "");
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match must be a task version, got " + ifMatch);
+        }
+    }
+    
+    // The ETag is the version the list was loaded at, which may be older than the one checked above
+    private ResponseEntity<List<Task>> versioned(VersionedTasks list) {
+        return ResponseEntity.ok().eTag(list.version()).body(list.tasks());
+    }
+    
+    private Set<String> parseFields(String fields) {
+        try {
+            return TaskFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+    
+    private void writeLine(OutputStream outputStream, Object value) throws IOException {
+        outputStream.write(objectMapper.writeValueAsBytes(value));
+        outputStream.write('\n');
+        outputStream.flush();
     }
 }
@@ -0,0 +1,18 @@
+package com.example.taskservice.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import lombok.Data;
+import java.util.Date;
+
+// A finished task moved out of the hot tasks collection; see TaskArchive
+@Data
+@Document(collection = "tasks_archive")
+public class ArchivedTask {
+    @Id
+    private String id; // Same id the task had in the tasks collection
+    private Task task; // The task as it was, without its analysis text
+    private byte[] analysisReasoning; // GZIP-compressed UTF-8
+    private byte[] analysisRecommendation; // GZIP-compressed UTF-8
+    private Date archivedAt;
+}
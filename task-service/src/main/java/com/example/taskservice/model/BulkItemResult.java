@@ -0,0 +1,15 @@
+package com.example.taskservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkItemResult {
+    private int index; // Position of the item in the request array
+    private String id;
+    private String status; // "created", "updated", "not_found", "conflict" or "failed"
+    private String error; // Only set when the item was not applied
+}
@@ -0,0 +1,21 @@
+package com.example.taskservice.model;
+
+import lombok.Data;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BulkResult {
+    private int succeeded;
+    private int failed;
+    private List<BulkItemResult> items = new ArrayList<>();
+
+    public void add(BulkItemResult item) {
+        items.add(item);
+        if (item.getError() == null) {
+            succeeded++;
+        } else {
+            failed++;
+        }
+    }
+}
@@ -1,16 +1,32 @@
 package com.example.taskservice.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.TextIndexed;
+import org.springframework.data.mongodb.core.mapping.TextScore;
 import org.springframework.data.mongodb.core.mapping.Document;
 import lombok.Data;
+import java.util.Date;
 import java.util.List;
 
 @Data
 @Document(collection = "tasks")
+// One text index over title, subject and description (weighted in that order) backs /search.
+// Each user lookup branch is an equality on one field followed by _id, so $or results merge in _id order
+@CompoundIndexes({
+    @CompoundIndex(name = "teacherId_id", def = "{'teacherId': 1, '_id': 1}"),
+    @CompoundIndex(name = "studentId_id", def = "{'studentId': 1, '_id': 1}"),
+    @CompoundIndex(name = "studentIds_id", def = "{'studentIds': 1, '_id': 1}"), // multikey
+    @CompoundIndex(name = "taskDone_updatedAt", def = "{'taskDone': 1, 'updatedAt': 1}") // archival scan
+})
 public class Task {
     @Id
     private String id;
+    @TextIndexed(weight = 3)
     private String title;
+    @TextIndexed
     private String description;
     private String teacherId; // ID of the teacher who assigned the task
     private String teacherName; // Name of the teacher who assigned the task
@@ -18,6 +34,7 @@ public class Task {
     private String studentName; // Name of the student (for single assignment)
     private List<String> studentIds; // List of student IDs for group assignments
     private List<String> studentNames; // List of student names for group assignments
+    @TextIndexed(weight = 2)
     private String subject; // Optional subject/course name
     private boolean fileUploaded; // Whether student has uploaded a file
     private boolean taskDone; // Whether task is completed (determined by vision model)
@@ -27,4 +44,9 @@ public class Task {
     private String analysisReasoning; // AI analysis reasoning/feedback
     private String analysisRecommendation; // AI analysis recommendation
     private Double analysisConfidence; // AI confidence score (0.0 to 1.0)
+    private Long version; // Incremented on every write; PATCH callers may send it back to detect concurrent updates
+    private Date updatedAt; // Set by the server on every write; archival age is measured from it
+    @TextScore
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Float score; // Search relevance; only set on /search results, never stored
 }
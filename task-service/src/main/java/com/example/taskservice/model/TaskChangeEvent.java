@@ -0,0 +1,16 @@
+package com.example.taskservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskChangeEvent {
+    private String type; // "created", "updated", "deleted", "archived" (moved to the archive, still readable by id), "unarchived" (moved back to be written), or "bulk" after a bulk write (clients should re-fetch)
+    private String taskId;
+    private Set<String> userIds; // Teacher and students of the task; empty when unknown (deletes seen through change streams)
+    private Task task; // Current state of the task; null for deletes
+}
@@ -0,0 +1,108 @@
+package com.example.taskservice.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.mongodb.core.mapping.TextScore;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Parses and applies the {@code ?fields=} projection accepted by the task listing endpoints.
+ */
+public final class TaskFields {
+
+    public static final Set<String> ALL = Arrays.stream(Task.class.getDeclaredFields())
+            .filter(field -> !Modifier.isStatic(field.getModifiers()))
+            // The search score is computed per query, not a stored field
+            .filter(field -> !field.isAnnotationPresent(TextScore.class))
+            .map(Field::getName)
+            .collect(Collectors.toUnmodifiableSet());
+
+    // Fields that decide which users a task belongs to
+    public static final Set<String> ASSIGNMENT = Set.of("teacherId", "studentId", "studentIds");
+
+    // Fields a PATCH may not touch: the id is the document key, version and updatedAt are maintained by the server
+    private static final Set<String> READ_ONLY = Set.of("id", "version", "updatedAt");
+
+    private TaskFields() {
+    }
+
+    /**
+     * Returns the requested field names (always including {@code id}), or an empty set when no
+     * projection was requested. Throws IllegalArgumentException for unknown fields.
+     */
+    public static Set<String> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return Collections.emptySet();
+        }
+        Set<String> parsed = new LinkedHashSet<>();
+        parsed.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!ALL.contains(name)) {
+                throw new IllegalArgumentException("Unknown task field: " + name);
+            }
+            parsed.add(name);
+        }
+        return parsed;
+    }
+
+    /**
+     * Renders a task as-is when no projection was requested, otherwise as a map holding only the
+     * requested fields so that unloaded fields are not reported as null/false.
+     */
+    @SuppressWarnings("unchecked")
+    public static Object project(Task task, Set<String> fields, ObjectMapper objectMapper) {
+        if (fields.isEmpty()) {
+            return task;
+        }
+        Map<String, Object> all = objectMapper.convertValue(task, Map.class);
+        Map<String, Object> projected = new LinkedHashMap<>();
+        fields.forEach(field -> projected.put(field, all.get(field)));
+        return projected;
+    }
+
+    /**
+     * Converts a PATCH body into typed field values ready for a $set. Throws IllegalArgumentException
+     * for unknown or read-only fields and for values that do not match the field type.
+     */
+    public static Map<String, Object> toUpdate(Map<String, Object> changes, ObjectMapper objectMapper) {
+        for (String field : changes.keySet()) {
+            if (!ALL.contains(field) || READ_ONLY.contains(field)) {
+                throw new IllegalArgumentException("Field cannot be patched: " + field);
+            }
+        }
+        BeanWrapper typed = new BeanWrapperImpl(objectMapper.convertValue(changes, Task.class));
+        Map<String, Object> update = new LinkedHashMap<>();
+        changes.keySet().forEach(field -> update.put(field, typed.getPropertyValue(field)));
+        return update;
+    }
+
+    // Ids of the teacher and every student the task is assigned to
+    public static Set<String> assignees(Task task) {
+        Set<String> userIds = new LinkedHashSet<>();
+        if (task.getTeacherId() != null) {
+            userIds.add(task.getTeacherId());
+        }
+        if (task.getStudentId() != null) {
+            userIds.add(task.getStudentId());
+        }
+        if (task.getStudentIds() != null) {
+            task.getStudentIds().stream().filter(Objects::nonNull).forEach(userIds::add);
+        }
+        return userIds;
+    }
+}
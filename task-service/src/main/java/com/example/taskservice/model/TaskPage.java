@@ -0,0 +1,14 @@
+package com.example.taskservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskPage {
+    private List<?> items; // Tasks, or field maps when a projection was requested
+    private String nextCursor; // Pass as ?after= to fetch the next page; null on the last page
+}
@@ -0,0 +1,19 @@
+package com.example.taskservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskStats {
+    private String key; // Subject, student id or teacher id, depending on the endpoint
+    private long total;
+    private long done; // Tasks with taskDone set
+    private double completionRate; // done / total
+    private Double averageGrade; // Over graded tasks only; null when none is graded
+    private long graded;
+    private Double averageConfidence; // Over analyzed tasks only; null when none is analyzed
+    private long analyzed;
+}
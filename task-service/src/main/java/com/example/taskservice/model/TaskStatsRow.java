@@ -0,0 +1,30 @@
+package com.example.taskservice.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import lombok.Data;
+import java.util.Date;
+
+/**
+ * Partial sums for one (dimension, teacher, key) group. Rows are what the stats pipelines produce and
+ * what the task_stats collection stores; sums rather than averages so rows of several teachers can be
+ * added up exactly.
+ */
+@Data
+@Document(collection = "task_stats")
+@CompoundIndex(name = "dimension_teacherId", def = "{'dimension': 1, 'teacherId': 1}")
+public class TaskStatsRow {
+    @Id
+    private String id; // dimension|teacherId|key
+    private String dimension; // "subjects", "students" or "teachers"
+    private String teacherId;
+    private String key;
+    private long total;
+    private long done;
+    private double gradeSum;
+    private long graded;
+    private double confidenceSum;
+    private long analyzed;
+    private Date refreshedAt; // When the refresh that last wrote this row ran
+}
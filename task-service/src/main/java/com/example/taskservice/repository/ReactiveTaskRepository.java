@@ -0,0 +1,10 @@
+package com.example.taskservice.repository;
+
+import com.example.taskservice.model.Task;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+// Non-blocking counterpart of TaskRepository, used by the "reactive" profile
+public interface ReactiveTaskRepository extends ReactiveMongoRepository<Task, String>, ReactiveTaskRepositoryCustom {
+    Flux<Task> findByTeacherIdOrderByIdAsc(String teacherId);
+}
@@ -0,0 +1,26 @@
+package com.example.taskservice.repository;
+
+import com.example.taskservice.model.Task;
+import org.springframework.data.mongodb.core.query.Criteria;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
+// Same operations as TaskRepositoryCustom, emitting documents as the cursor yields them
+public interface ReactiveTaskRepositoryCustom {
+    Flux<Task> findMatching(Criteria filter);
+
+    Flux<Task> findPage(Criteria filter, String afterId, int limit, Collection<String> fields);
+
+    // Empty if the task is missing or expectedVersion does not match
+    Mono<Task> applyPatch(String id, Map<String, Object> values, Long expectedVersion);
+
+    // Emits the previous document; empty if none matched (a new task was inserted when expectedVersion is null)
+    Mono<Task> replace(Task task, Long expectedVersion);
+
+    Flux<Task> search(String text, String teacherId, int offset, int limit);
+
+    Flux<Task> streamAll(Collection<String> fields);
+}
@@ -0,0 +1,79 @@
+package com.example.taskservice.repository;
+
+import com.example.taskservice.model.Task;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
+public class ReactiveTaskRepositoryImpl implements ReactiveTaskRepositoryCustom {
+
+    private static final int STREAM_BATCH_SIZE = 500;
+    private static final Sort BY_ID = Sort.by(Sort.Direction.ASC, "_id");
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Flux<Task> findMatching(Criteria filter) {
+        return reactiveMongoTemplate.find(new Query(filter).with(BY_ID), Task.class);
+    }
+
+    @Override
+    public Flux<Task> findPage(Criteria filter, String afterId, int limit, Collection<String> fields) {
+        Query query = new Query().with(BY_ID).limit(limit);
+        if (filter != null) {
+            query.addCriteria(filter);
+        }
+        if (afterId != null) {
+            query.addCriteria(TaskCriteria.idAfter(afterId));
+        }
+        applyProjection(query, fields);
+        return reactiveMongoTemplate.find(query, Task.class);
+    }
+
+    @Override
+    public Mono<Task> applyPatch(String id, Map<String, Object> values, Long expectedVersion) {
+        Query query = new Query(TaskCriteria.byIdAndVersion(id, expectedVersion));
+        Update update = new Update().inc("version", 1).currentDate("updatedAt");
+        values.forEach(update::set);
+        return reactiveMongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Task.class);
+    }
+
+    @Override
+    public Mono<Task> replace(Task task, Long expectedVersion) {
+        Document document = new Document();
+        reactiveMongoTemplate.getConverter().write(task, document);
+        document.remove("version");
+        Query query = new Query(TaskCriteria.byIdAndVersion(task.getId(), expectedVersion));
+        return reactiveMongoTemplate.findAndModify(query, TaskCriteria.replacement(document),
+                FindAndModifyOptions.options().upsert(expectedVersion == null).returnNew(false), Task.class);
+    }
+
+    @Override
+    public Flux<Task> search(String text, String teacherId, int offset, int limit) {
+        return reactiveMongoTemplate.find(TaskCriteria.search(text, teacherId).skip(offset).limit(limit), Task.class);
+    }
+
+    @Override
+    public Flux<Task> streamAll(Collection<String> fields) {
+        Query query = new Query().with(BY_ID).cursorBatchSize(STREAM_BATCH_SIZE);
+        applyProjection(query, fields);
+        return reactiveMongoTemplate.find(query, Task.class);
+    }
+
+    private void applyProjection(Query query, Collection<String> fields) {
+        if (fields != null && !fields.isEmpty()) {
+            fields.forEach(field -> query.fields().include(field));
+        }
+    }
+}
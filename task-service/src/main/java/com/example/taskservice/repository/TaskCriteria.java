@@ -0,0 +1,72 @@
+package com.example.taskservice.repository;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+
+import java.util.List;
+
+/**
+ * Shared filters for task lookups. Each branch of the $or is covered by one of the
+ * (field, _id) compound indexes declared on {@link com.example.taskservice.model.Task}.
+ */
+public final class TaskCriteria {
+
+    private TaskCriteria() {
+    }
+
+    // Tasks where the user is the teacher, the single assigned student, or in the group
+    public static Criteria forUser(String userId) {
+        return new Criteria().orOperator(
+                Criteria.where("teacherId").is(userId),
+                Criteria.where("studentId").is(userId),
+                Criteria.where("studentIds").is(userId));
+    }
+
+    // Tasks assigned to the student either directly or as part of a group
+    public static Criteria forStudent(String studentId) {
+        return new Criteria().orOperator(
+                Criteria.where("studentId").is(studentId),
+                Criteria.where("studentIds").is(studentId));
+    }
+
+    // $text query on the tasks text index, best matches first; the teacher filter is applied to the matches only
+    public static Query search(String text, String teacherId) {
+        Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text)).sortByScore();
+        if (teacherId != null) {
+            query.addCriteria(Criteria.where("teacherId").is(teacherId));
+        }
+        return query;
+    }
+
+    // Keyset continuation: ids after the last one of the previous page
+    public static Criteria idAfter(String afterId) {
+        // Generated ids are ObjectIds; compare against the same BSON type so the range uses the _id index
+        return Criteria.where("_id").gt(ObjectId.isValid(afterId) ? new ObjectId(afterId) : afterId);
+    }
+
+    // Replaces the whole document, moves its version on and stamps updatedAt in one update; $literal keeps "$..." strings
+    // from being read as field paths
+    public static AggregationUpdate replacement(Document document) {
+        Document serverFields = new Document("version", new Document("$add", List.of(new Document("$ifNull", List.of("$version", 0L)), 1L)))
+                .append("updatedAt", "$$NOW");
+        return AggregationUpdate.from(List.of(context -> new Document("$replaceWith",
+                new Document("$mergeObjects", List.of(new Document("$literal", document), serverFields)))));
+    }
+
+    // Matches the task only while it is still at expectedVersion (when given); pre-versioning documents count as version 0
+    public static Criteria byIdAndVersion(String id, Long expectedVersion) {
+        Criteria byId = Criteria.where("_id").is(id);
+        if (expectedVersion == null) {
+            return byId;
+        }
+        Criteria version = expectedVersion == 0
+                ? new Criteria().orOperator(Criteria.where("version").is(0L), Criteria.where("version").exists(false))
+                : Criteria.where("version").is(expectedVersion);
+        return new Criteria().andOperator(byId, version);
+    }
+}
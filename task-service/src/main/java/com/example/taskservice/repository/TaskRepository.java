@@ -4,8 +4,6 @@ import com.example.taskservice.model.Task;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import java.util.List;
 
-public interface TaskRepository extends MongoRepository<Task, String> {
-    List<Task> findByTeacherId(String teacherId);
-    List<Task> findByStudentId(String studentId);
-    List<Task> findByStudentIdsContaining(String studentId);
-}
\ No newline at end of file
+public interface TaskRepository extends MongoRepository<Task, String>, TaskRepositoryCustom {
+    List<Task> findByTeacherIdOrderByIdAsc(String teacherId);
+}
@@ -0,0 +1,29 @@
+package com.example.taskservice.repository;
+
+import com.example.taskservice.model.Task;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public interface TaskRepositoryCustom {
+    // All tasks matching the filter in a single query, ordered by _id
+    List<Task> findMatching(Criteria filter);
+
+    // Keyset page ordered by _id; filter may be null, afterId is the last id of the previous page (null for the first page)
+    List<Task> findPage(Criteria filter, String afterId, int limit, Collection<String> fields);
+
+    // Atomically $set the given fields and bump the version; returns null if the task is missing or expectedVersion does not match
+    Task applyPatch(String id, Map<String, Object> values, Long expectedVersion);
+
+    // Atomically replace the task and bump its version, only while at expectedVersion when given, else upserting; returns the previous document, null if none matched
+    Task replace(Task task, Long expectedVersion);
+
+    // Text index matches ordered by relevance; teacherId may be null to search all tasks
+    List<Task> search(String text, String teacherId, int offset, int limit);
+
+    // Cursor-backed stream of all tasks; callers must close it
+    Stream<Task> streamAll(Collection<String> fields);
+}
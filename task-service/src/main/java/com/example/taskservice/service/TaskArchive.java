@@ -0,0 +1,237 @@
+package com.example.taskservice.service;
+
+import com.example.taskservice.model.ArchivedTask;
+import com.example.taskservice.model.Task;
+import com.example.taskservice.repository.TaskCriteria;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold tier for finished tasks. A background run moves tasks that are taskDone and were last written
+ * more than task.archive.min-age ago from tasks into tasks_archive, with their analysis text compressed.
+ * Age is taken from updatedAt (a range on the taskDone/updatedAt index); documents written before that
+ * field existed fall back to their ObjectId creation time. Runs are throttled: small batches, a pause
+ * between batches and a cap per run, on a thread of their own.
+ *
+ * <p>Each task is copied first and only then deleted from the hot collection, and the delete is
+ * conditional on the version that was copied. A task written in the meantime stays hot and its archive
+ * copy is dropped again. Lookups by id fall through to the archive, and writes by id move the task back
+ * to the hot collection first ({@link #unarchive}); list endpoints, search and stats only cover the hot
+ * collection.
+ */
+@Service
+@Slf4j
+public class TaskArchive {
+
+    private final MongoTemplate mongoTemplate;
+    private final TaskChangeNotifier taskChangeNotifier;
+
+    @Value("${task.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${task.archive.min-age:180d}")
+    private Duration minAge;
+
+    @Value("${task.archive.batch-size:200}")
+    private int batchSize;
+
+    @Value("${task.archive.pause-ms:500}")
+    private long pauseMs;
+
+    @Value("${task.archive.max-per-run:10000}")
+    private int maxPerRun;
+
+    @Value("${task.archive.initial-delay-ms:60000}")
+    private long initialDelayMs;
+
+    @Value("${task.archive.interval-ms:3600000}")
+    private long intervalMs;
+
+    // Runs are long and sleep between batches, so they get their own thread instead of the shared @Scheduled one
+    private ScheduledExecutorService executor;
+
+    public TaskArchive(MongoTemplate mongoTemplate, TaskChangeNotifier taskChangeNotifier) {
+        this.mongoTemplate = mongoTemplate;
+        this.taskChangeNotifier = taskChangeNotifier;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::archiveOldTasks, initialDelayMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public Optional<Task> findById(String id) {
+        return Optional.ofNullable(mongoTemplate.findById(id, ArchivedTask.class)).map(TaskArchive::restore);
+    }
+
+    public void deleteById(String id) {
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(id)), ArchivedTask.class);
+    }
+
+    /**
+     * Moves an archived task back into the hot collection so a write by id can apply to it.
+     * Returns false when the id is not archived.
+     */
+    public boolean unarchive(String id) {
+        Optional<Task> task = findById(id);
+        if (task.isEmpty()) {
+            return false;
+        }
+        try {
+            mongoTemplate.insert(task.get());
+        } catch (DuplicateKeyException e) {
+            // Another write restored (or recreated) it first; that hot copy wins
+        }
+        deleteById(id);
+        taskChangeNotifier.changed("unarchived", null, task.get());
+        return true;
+    }
+
+    public void archiveOldTasks() {
+        Date cutoff = Date.from(Instant.now().minus(minAge));
+        Criteria lastWritten = new Criteria().orOperator(
+                Criteria.where("updatedAt").lt(cutoff),
+                Criteria.where("updatedAt").exists(false).and("_id").lt(new ObjectId(cutoff)));
+        Query batchQuery = new Query(Criteria.where("taskDone").is(true).andOperator(lastWritten))
+                .with(Sort.by(Sort.Direction.ASC, "updatedAt"))
+                .limit(batchSize);
+        int archived = 0;
+        try {
+            while (archived < maxPerRun) {
+                List<Task> batch = mongoTemplate.find(batchQuery, Task.class);
+                int moved = 0;
+                for (Task task : batch) {
+                    moved += archive(task) ? 1 : 0;
+                }
+                archived += moved;
+                // A batch where nothing moved would be found again; stop and retry next run
+                if (batch.size() < batchSize || moved == 0) {
+                    break;
+                }
+                Thread.sleep(pauseMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Task archival stopped after {} tasks: {}", archived, e.getMessage());
+        }
+        if (archived > 0) {
+            log.info("Archived {} finished tasks last written before {}", archived, cutoff);
+        }
+    }
+
+    private boolean archive(Task task) {
+        ArchivedTask archived = new ArchivedTask();
+        archived.setId(task.getId());
+        archived.setAnalysisReasoning(compress(task.getAnalysisReasoning()));
+        archived.setAnalysisRecommendation(compress(task.getAnalysisRecommendation()));
+        archived.setArchivedAt(new Date());
+        Task stored = copyWithoutAnalysisText(task);
+        archived.setTask(stored);
+        mongoTemplate.save(archived);
+
+        Long version = task.getVersion() == null ? 0L : task.getVersion();
+        if (mongoTemplate.remove(new Query(TaskCriteria.byIdAndVersion(task.getId(), version)), Task.class).getDeletedCount() == 0) {
+            // Updated (or deleted) since it was read: leave the hot copy as the only one
+            deleteById(task.getId());
+            return false;
+        }
+        taskChangeNotifier.changed("archived", task, null);
+        return true;
+    }
+
+    private static Task copyWithoutAnalysisText(Task task) {
+        Task copy = new Task();
+        copy.setId(task.getId());
+        copy.setTitle(task.getTitle());
+        copy.setDescription(task.getDescription());
+        copy.setTeacherId(task.getTeacherId());
+        copy.setTeacherName(task.getTeacherName());
+        copy.setStudentId(task.getStudentId());
+        copy.setStudentName(task.getStudentName());
+        copy.setStudentIds(task.getStudentIds());
+        copy.setStudentNames(task.getStudentNames());
+        copy.setSubject(task.getSubject());
+        copy.setFileUploaded(task.isFileUploaded());
+        copy.setTaskDone(task.isTaskDone());
+        copy.setCompleted(task.isCompleted());
+        copy.setFileUrl(task.getFileUrl());
+        copy.setGrade(task.getGrade());
+        copy.setAnalysisConfidence(task.getAnalysisConfidence());
+        copy.setVersion(task.getVersion());
+        copy.setUpdatedAt(task.getUpdatedAt());
+        return copy;
+    }
+
+    private static Task restore(ArchivedTask archived) {
+        Task task = archived.getTask();
+        task.setId(archived.getId());
+        task.setAnalysisReasoning(decompress(archived.getAnalysisReasoning()));
+        task.setAnalysisRecommendation(decompress(archived.getAnalysisRecommendation()));
+        return task;
+    }
+
+    static byte[] compress(String text) {
+        if (text == null) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static String decompress(byte[] compressed) {
+        if (compressed == null) {
+            return null;
+        }
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.taskservice.service;
+
+import com.example.taskservice.model.BulkItemResult;
+import com.example.taskservice.model.BulkResult;
+import com.example.taskservice.model.Task;
+import com.example.taskservice.model.TaskFields;
+import com.example.taskservice.repository.TaskCriteria;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reads JSON arrays of tasks or task patches item by item from the request body and writes them
+ * to Mongo in unordered bulk batches, reporting the outcome of every item.
+ */
+@Service
+@Slf4j
+public class TaskBulkService {
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${task.bulk.batch-size:500}")
+    private int batchSize;
+
+    @Value("${task.bulk.max-items:10000}")
+    private int maxItems;
+
+    public TaskBulkService(MongoTemplate mongoTemplate, ObjectMapper objectMapper) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    public BulkResult createAll(InputStream body) throws IOException {
+        BulkResult result = new BulkResult();
+        List<Task> batch = new ArrayList<>(batchSize);
+        List<Integer> indexes = new ArrayList<>(batchSize);
+        readArray(body, result, (parser, index) -> {
+            // Read as a tree first, so an item of the wrong shape fails alone and parsing carries on
+            JsonNode item = parser.readValueAsTree();
+            Task task;
+            try {
+                task = objectMapper.treeToValue(item, Task.class);
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                result.add(new BulkItemResult(index, null, "failed", "Invalid task: " + e.getMessage()));
+                return;
+            }
+            if (task == null) {
+                result.add(new BulkItemResult(index, null, "failed", "Invalid task: null"));
+                return;
+            }
+            // Assign ids up front so every item can be reported without reading the documents back
+            if (task.getId() == null) {
+                task.setId(new ObjectId().toHexString());
+            }
+            task.setUpdatedAt(new Date());
+            batch.add(task);
+            indexes.add(index);
+            if (batch.size() == batchSize) {
+                insertBatch(batch, indexes, result);
+                batch.clear();
+                indexes.clear();
+            }
+        });
+        if (!batch.isEmpty()) {
+            insertBatch(batch, indexes, result);
+        }
+        result.getItems().sort(Comparator.comparingInt(BulkItemResult::getIndex));
+        log.info("Bulk create finished: {} created, {} failed", result.getSucceeded(), result.getFailed());
+        return result;
+    }
+
+    public BulkResult patchAll(InputStream body) throws IOException {
+        BulkResult result = new BulkResult();
+        List<PendingPatch> batch = new ArrayList<>(batchSize);
+        readArray(body, result, (parser, index) -> {
+            // Read as a tree first, so an item that is not an object fails alone and parsing carries on
+            JsonNode node = parser.readValueAsTree();
+            if (node == null || !node.isObject()) {
+                result.add(new BulkItemResult(index, null, "failed", "Each item must be a JSON object"));
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> item = objectMapper.convertValue(node, Map.class);
+            PendingPatch patch;
+            try {
+                patch = toPendingPatch(index, item);
+            } catch (IllegalArgumentException e) {
+                Object id = item == null ? null : item.get("id");
+                result.add(new BulkItemResult(index, id instanceof String ? (String) id : null, "failed", e.getMessage()));
+                return;
+            }
+            batch.add(patch);
+            if (batch.size() == batchSize) {
+                updateBatch(batch, result);
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) {
+            updateBatch(batch, result);
+        }
+        result.getItems().sort(Comparator.comparingInt(BulkItemResult::getIndex));
+        log.info("Bulk patch finished: {} updated, {} not applied", result.getSucceeded(), result.getFailed());
+        return result;
+    }
+
+    /**
+     * Feeds the array items to the handler. Malformed JSON ends the read with a failed item at that
+     * position rather than an exception: earlier batches are already written, and the caller still
+     * writes the items read so far, so the client gets a report covering everything that was applied.
+     */
+    private void readArray(InputStream body, BulkResult result, ItemHandler handler) throws IOException {
+        int index = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Request body must be a JSON array");
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (index == maxItems) {
+                    result.add(new BulkItemResult(index, null, "failed",
+                            "Request exceeds " + maxItems + " items; remaining items were not processed"));
+                    return;
+                }
+                handler.handle(parser, index);
+                index++;
+            }
+        } catch (JsonProcessingException e) {
+            if (index == 0 && result.getItems().isEmpty()) {
+                // Nothing read yet, so nothing written: reject the request as a whole
+                throw new IllegalArgumentException("Malformed JSON array: " + e.getOriginalMessage());
+            }
+            result.add(new BulkItemResult(index, null, "failed",
+                    "Malformed JSON: " + e.getOriginalMessage() + "; remaining items were not processed"));
+        }
+    }
+
+    private void insertBatch(List<Task> batch, List<Integer> indexes, BulkResult result) {
+        Map<Integer, String> errors = new HashMap<>();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Task.class).insert(batch).execute();
+        } catch (BulkOperationException e) {
+            collectErrors(e, errors::put);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            String error = errors.get(i);
+            result.add(new BulkItemResult(indexes.get(i), batch.get(i).getId(), error == null ? "created" : "failed", error));
+        }
+    }
+
+    private void updateBatch(List<PendingPatch> batch, BulkResult result) {
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Task.class);
+        for (PendingPatch patch : batch) {
+            Update update = new Update().inc("version", 1).currentDate("updatedAt");
+            patch.update.forEach(update::set);
+            operations.updateOne(new Query(TaskCriteria.byIdAndVersion(patch.id, patch.expectedVersion)), update);
+        }
+
+        Map<Integer, String> errors = new HashMap<>();
+        int matched;
+        try {
+            matched = operations.execute().getMatchedCount();
+        } catch (BulkOperationException e) {
+            collectErrors(e, errors::put);
+            matched = e.getResult().getMatchedCount();
+        }
+
+        // The bulk result only carries counts; look up the leftovers only when some updates did not match
+        Map<String, Long> versions = matched + errors.size() < batch.size() ? currentVersions(batch) : null;
+        for (int i = 0; i < batch.size(); i++) {
+            PendingPatch patch = batch.get(i);
+            if (errors.containsKey(i)) {
+                result.add(new BulkItemResult(patch.index, patch.id, "failed", errors.get(i)));
+            } else if (versions != null && !versions.containsKey(patch.id)) {
+                result.add(new BulkItemResult(patch.index, patch.id, "not_found", "Task not found"));
+            } else if (versions != null && patch.expectedVersion != null
+                    && !Long.valueOf(patch.expectedVersion + 1).equals(versions.get(patch.id))) {
+                result.add(new BulkItemResult(patch.index, patch.id, "conflict", "Task was modified concurrently"));
+            } else {
+                result.add(new BulkItemResult(patch.index, patch.id, "updated", null));
+            }
+        }
+    }
+
+    private Map<String, Long> currentVersions(List<PendingPatch> batch) {
+        Query query = new Query(Criteria.where("_id").in(batch.stream().map(patch -> patch.id).collect(Collectors.toList())));
+        query.fields().include("version");
+        Map<String, Long> versions = new HashMap<>();
+        mongoTemplate.find(query, Task.class)
+                .forEach(task -> versions.put(task.getId(), task.getVersion() == null ? 0L : task.getVersion()));
+        return versions;
+    }
+
+    private PendingPatch toPendingPatch(int index, Map<String, Object> item) {
+        if (item == null || !(item.get("id") instanceof String id) || id.isBlank()) {
+            throw new IllegalArgumentException("Each item needs a string id");
+        }
+        Map<String, Object> fields = new HashMap<>(item);
+        fields.remove("id");
+        Long expectedVersion = fields.remove("version") instanceof Number version ? version.longValue() : null;
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("No fields to update");
+        }
+        return new PendingPatch(index, id, expectedVersion, TaskFields.toUpdate(fields, objectMapper));
+    }
+
+    private void collectErrors(BulkOperationException e, BiConsumer<Integer, String> sink) {
+        for (BulkWriteError error : e.getErrors()) {
+            sink.accept(error.getIndex(), error.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface ItemHandler {
+        void handle(JsonParser parser, int index) throws IOException;
+    }
+
+    private record PendingPatch(int index, String id, Long expectedVersion, Map<String, Object> update) {
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.taskservice.service;
+
+import com.example.taskservice.cache.TaskCache;
+import com.example.taskservice.model.BulkItemResult;
+import com.example.taskservice.model.BulkResult;
+import com.example.taskservice.model.Task;
+import com.example.taskservice.model.TaskChangeEvent;
+import com.example.taskservice.model.TaskFields;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The write-side bookkeeping shared by the blocking and reactive controllers: evicts cached copies
+ * (which also moves the ETag versions) and publishes change events for stream subscribers.
+ */
+@Service
+public class TaskChangeNotifier {
+
+    private final TaskCache taskCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public TaskChangeNotifier(TaskCache taskCache, ApplicationEventPublisher eventPublisher) {
+        this.taskCache = taskCache;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // Every single-task write ends here: evict cached copies and notify stream subscribers
+    public void changed(String type, Task before, Task after) {
+        taskCache.taskChanged(before, after);
+        Set<String> userIds = new LinkedHashSet<>();
+        if (before != null) {
+            userIds.addAll(TaskFields.assignees(before));
+        }
+        if (after != null) {
+            userIds.addAll(TaskFields.assignees(after));
+        }
+        String taskId = after != null ? after.getId() : before.getId();
+        eventPublisher.publishEvent(new TaskChangeEvent(type, taskId, userIds, after));
+    }
+
+    // A delete of a task that may not have existed; without its previous state only the id is evicted
+    public void deleted(String id, Task existing) {
+        if (existing != null) {
+            changed("deleted", existing, null);
+        } else {
+            taskCache.tasksChanged(List.of(id));
+        }
+    }
+
+    // Bulk items do not carry their previous assignees, so drop the written ids and all user lists
+    public BulkResult bulkChanged(BulkResult result) {
+        List<String> ids = result.getItems().stream()
+                .map(BulkItemResult::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        if (!ids.isEmpty()) {
+            taskCache.tasksChanged(ids);
+            eventPublisher.publishEvent(new TaskChangeEvent("bulk", null, Set.of(), null));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.taskservice.service;
+
+import com.example.taskservice.model.Task;
+import com.example.taskservice.model.TaskChangeEvent;
+import com.example.taskservice.model.TaskFields;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.Set;
+
+/**
+ * Feeds {@link TaskEventStream} and {@link TaskStatsService} from a Mongo change stream on the tasks collection. Change streams
+ * need a replica set; with task.events.source=auto the relay only starts when the server reports one,
+ * otherwise the stream keeps using the in-process events published by the controller.
+ */
+@Service
+@Slf4j
+public class TaskChangeStreamRelay {
+
+    private final MongoTemplate mongoTemplate;
+    private final TaskEventStream taskEventStream;
+    private final TaskStatsService taskStatsService;
+    private MessageListenerContainer container;
+
+    @Value("${task.events.source:auto}")
+    private String source;
+
+    public TaskChangeStreamRelay(MongoTemplate mongoTemplate, TaskEventStream taskEventStream, TaskStatsService taskStatsService) {
+        this.mongoTemplate = mongoTemplate;
+        this.taskEventStream = taskEventStream;
+        this.taskStatsService = taskStatsService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if ("local".equals(source) || ("auto".equals(source) && !isReplicaSet())) {
+            log.info("Task change events use the in-process bus");
+            return;
+        }
+        container = new DefaultMessageListenerContainer(mongoTemplate);
+        ChangeStreamRequest<Task> request = ChangeStreamRequest.builder(this::relay)
+                .collection(mongoTemplate.getCollectionName(Task.class))
+                .fullDocumentLookup(FullDocument.UPDATE_LOOKUP)
+                .build();
+        container.register(request, Task.class);
+        container.start();
+        taskEventStream.useChangeStream();
+        log.info("Task change events use the Mongo change stream");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (container != null) {
+            container.stop();
+        }
+    }
+
+    private void relay(Message<ChangeStreamDocument<Document>, Task> message) {
+        ChangeStreamDocument<Document> change = message.getRaw();
+        if (change == null) {
+            return;
+        }
+        OperationType operation = change.getOperationType();
+        String type;
+        if (operation == OperationType.INSERT) {
+            type = "created";
+        } else if (operation == OperationType.UPDATE || operation == OperationType.REPLACE) {
+            type = "updated";
+        } else if (operation == OperationType.DELETE) {
+            type = "deleted";
+        } else {
+            return;
+        }
+        Task task = "deleted".equals(type) ? null : message.getBody();
+        String taskId = task != null ? task.getId() : documentId(change);
+        TaskChangeEvent event = new TaskChangeEvent(type, taskId, task != null ? TaskFields.assignees(task) : Set.of(), task);
+        taskEventStream.publish(event);
+        // Writes from other replicas never reach this replica's local listeners
+        taskStatsService.changed(event);
+    }
+
+    private String documentId(ChangeStreamDocument<Document> change) {
+        if (change.getDocumentKey() == null) {
+            return null;
+        }
+        BsonValue id = change.getDocumentKey().get("_id");
+        if (id == null) {
+            return null;
+        }
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.isString() ? id.asString().getValue() : id.toString();
+    }
+
+    private boolean isReplicaSet() {
+        try {
+            return mongoTemplate.executeCommand(new Document("hello", 1)).containsKey("setName");
+        } catch (RuntimeException e) {
+            log.warn("Could not determine Mongo topology, using in-process task events: {}", e.getMessage());
+            return false;
+        }
+    }
+}
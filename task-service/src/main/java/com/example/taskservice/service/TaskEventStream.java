@@ -0,0 +1,188 @@
+package com.example.taskservice.service;
+
+import com.example.taskservice.model.TaskChangeEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Fans task change events out to server-sent event subscribers. Events arrive either from the
+ * controller's write paths (in-process) or, when a replica set is available, from the Mongo change
+ * stream relay, which also sees writes made by other replicas.
+ *
+ * <p>Each SSE subscriber has its own bounded queue, drained by a sender thread while it has work, so a
+ * client that reads slowly only delays itself. A subscriber whose queue overflows is disconnected and
+ * is expected to reconnect and reload.
+ */
+@Service
+@Slf4j
+public class TaskEventStream {
+
+    private static final String ALL_TASKS = "*";
+
+    // Subscribers keyed by user id; ALL_TASKS receives every change
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    // Fans events out off the writer's thread; only queues them, so it never waits on a client
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "task-event-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Blocking SseEmitter.send calls; at most one thread per subscriber at a time
+    private final ExecutorService senders = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "task-event-send");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Subscribers of the reactive controller; only the dispatcher thread emits, so emissions never race
+    private final Sinks.Many<TaskChangeEvent> reactiveEvents = Sinks.many().multicast().directBestEffort();
+
+    private volatile boolean changeStreamActive;
+
+    @Value("${task.events.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${task.events.subscriber-buffer:256}")
+    private int subscriberBuffer;
+
+    public SseEmitter subscribe(String userId) {
+        String key = userId == null || userId.isBlank() ? ALL_TASKS : userId;
+        SseEmitter emitter = createEmitter();
+        Subscriber subscriber = new Subscriber(key, emitter, new LinkedBlockingQueue<>(subscriberBuffer), new AtomicBoolean());
+        subscribers.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        Runnable remove = () -> unsubscribe(subscriber);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        log.info("SSE subscriber added for {}", key);
+        return emitter;
+    }
+
+    // Reactive counterpart of subscribe: a slow subscriber misses events instead of holding up the others
+    public Flux<TaskChangeEvent> events(String userId) {
+        String key = userId == null || userId.isBlank() ? ALL_TASKS : userId;
+        return reactiveEvents.asFlux().filter(event -> ALL_TASKS.equals(key)
+                || event.getUserIds() == null || event.getUserIds().isEmpty()
+                || event.getUserIds().contains(key));
+    }
+
+    // Called by the change stream relay once it is listening; local events would then be duplicates
+    public void useChangeStream() {
+        changeStreamActive = true;
+    }
+
+    @EventListener
+    public void onLocalChange(TaskChangeEvent event) {
+        if (!changeStreamActive) {
+            publish(event);
+        }
+    }
+
+    public void publish(TaskChangeEvent event) {
+        dispatcher.execute(() -> {
+            reactiveEvents.tryEmitNext(event);
+            send(ALL_TASKS, event);
+            if (event.getUserIds() == null || event.getUserIds().isEmpty()) {
+                // Owner unknown: let every subscriber decide whether it holds this task
+                subscribers.keySet().stream().filter(key -> !ALL_TASKS.equals(key)).forEach(key -> send(key, event));
+            } else {
+                event.getUserIds().forEach(userId -> send(userId, event));
+            }
+        });
+    }
+
+    // Comment lines keep idle connections open through the gateway and nginx
+    @Scheduled(fixedDelayString = "${task.events.heartbeat-ms:25000}")
+    public void heartbeat() {
+        dispatcher.execute(() -> subscribers.values().forEach(group -> group.forEach(
+                subscriber -> enqueue(subscriber, () -> SseEmitter.event().comment("heartbeat")))));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+        reactiveEvents.tryEmitComplete();
+        subscribers.values().forEach(group -> group.forEach(subscriber -> subscriber.emitter().complete()));
+    }
+
+    // Package-private so tests can substitute emitters
+    SseEmitter createEmitter() {
+        return new SseEmitter(emitterTimeoutMs);
+    }
+
+    private void send(String key, TaskChangeEvent event) {
+        Set<Subscriber> group = subscribers.get(key);
+        if (group == null) {
+            return;
+        }
+        for (Subscriber subscriber : group) {
+            enqueue(subscriber, () -> {
+                SseEmitter.SseEventBuilder sseEvent = SseEmitter.event().name(event.getType()).data(event);
+                if (event.getTaskId() != null) {
+                    sseEvent.id(event.getTaskId());
+                }
+                return sseEvent;
+            });
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, Supplier<SseEmitter.SseEventBuilder> event) {
+        if (!subscriber.queue().offer(event)) {
+            log.info("Disconnecting SSE subscriber for {}: more than {} events behind", subscriber.key(), subscriberBuffer);
+            unsubscribe(subscriber);
+            subscriber.emitter().complete();
+            return;
+        }
+        if (subscriber.draining().compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        do {
+            Supplier<SseEmitter.SseEventBuilder> event;
+            while ((event = subscriber.queue().poll()) != null) {
+                try {
+                    subscriber.emitter().send(event.get());
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Dropping SSE subscriber for {}: {}", subscriber.key(), e.getMessage());
+                    unsubscribe(subscriber);
+                    subscriber.queue().clear();
+                    return;
+                }
+            }
+            subscriber.draining().set(false);
+            // An event queued after the last poll but before the flag was cleared would otherwise wait for the next one
+        } while (!subscriber.queue().isEmpty() && subscriber.draining().compareAndSet(false, true));
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.key(), (k, group) -> {
+            group.remove(subscriber);
+            return group.isEmpty() ? null : group;
+        });
+    }
+
+    private record Subscriber(String key, SseEmitter emitter, BlockingQueue<Supplier<SseEmitter.SseEventBuilder>> queue,
+                              AtomicBoolean draining) {
+    }
+}
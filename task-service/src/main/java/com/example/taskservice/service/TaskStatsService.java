@@ -0,0 +1,253 @@
+package com.example.taskservice.service;
+
+import com.example.taskservice.model.Task;
+import com.example.taskservice.model.TaskChangeEvent;
+import com.example.taskservice.model.TaskStats;
+import com.example.taskservice.model.TaskStatsRow;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Completion, grade and confidence statistics grouped by subject, student or teacher. The numbers come
+ * from one aggregation pipeline per dimension that produces per-teacher partial sums.
+ *
+ * <p>With task.stats.materialized=true those sums are kept in the task_stats collection and reads only
+ * touch that small collection. Each write marks its teacher as changed and the next refresh (every
+ * task.stats.refresh-ms) re-runs the pipelines for just those teachers, through the teacherId index,
+ * and upserts the resulting rows into task_stats. Bulk writes trigger a full refresh. Writes made on other replicas
+ * arrive through {@link TaskChangeStreamRelay} when change streams are in use, and a periodic full
+ * refresh (task.stats.full-refresh-ms) bounds anything missed, such as the previous teacher of a task
+ * reassigned elsewhere. Reads may lag writes by up to one refresh interval.
+ */
+@Service
+@Slf4j
+public class TaskStatsService {
+
+    public static final Set<String> DIMENSIONS = Set.of("subjects", "students", "teachers");
+    private static final String NO_SUBJECT = "(none)";
+
+    private final MongoTemplate mongoTemplate;
+    private final Set<String> changedTeachers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean fullRefresh = new AtomicBoolean(true);
+
+    @Value("${task.stats.materialized:true}")
+    private boolean materialized;
+
+    public TaskStatsService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // Per-key statistics for one dimension, over all tasks or only the given teacher's
+    public List<TaskStats> stats(String dimension, String teacherId) {
+        List<TaskStatsRow> rows;
+        if (materialized) {
+            Criteria filter = Criteria.where("dimension").is(dimension);
+            if (teacherId != null) {
+                filter.and("teacherId").is(teacherId);
+            }
+            rows = mongoTemplate.find(new Query(filter), TaskStatsRow.class);
+        } else {
+            rows = aggregate(dimension, teacherId);
+        }
+        return rollUp(rows);
+    }
+
+    // Totals over the same tasks, as a single entry keyed "all"
+    public TaskStats summary(String teacherId) {
+        List<TaskStats> perTeacher = stats("teachers", teacherId);
+        TaskStats summary = new TaskStats("all", 0, 0, 0, null, 0, null, 0);
+        double gradeSum = 0;
+        double confidenceSum = 0;
+        for (TaskStats stats : perTeacher) {
+            summary.setTotal(summary.getTotal() + stats.getTotal());
+            summary.setDone(summary.getDone() + stats.getDone());
+            summary.setGraded(summary.getGraded() + stats.getGraded());
+            summary.setAnalyzed(summary.getAnalyzed() + stats.getAnalyzed());
+            gradeSum += stats.getAverageGrade() != null ? stats.getAverageGrade() * stats.getGraded() : 0;
+            confidenceSum += stats.getAverageConfidence() != null ? stats.getAverageConfidence() * stats.getAnalyzed() : 0;
+        }
+        finish(summary, gradeSum, confidenceSum);
+        return summary;
+    }
+
+    @EventListener
+    public void onLocalChange(TaskChangeEvent event) {
+        changed(event);
+    }
+
+    // Also fed by the change stream relay with writes from every replica
+    public void changed(TaskChangeEvent event) {
+        if (!materialized) {
+            return;
+        }
+        Task task = event.getTask();
+        boolean ownerUnknown = task == null && (event.getUserIds() == null || event.getUserIds().isEmpty());
+        if ("bulk".equals(event.getType()) || ownerUnknown || (task != null && task.getTeacherId() == null)) {
+            fullRefresh.set(true);
+            return;
+        }
+        if (task != null) {
+            changedTeachers.add(task.getTeacherId());
+        }
+        // Covers the previous teacher of a reassigned or deleted task; ids that are not teachers match nothing
+        if (event.getUserIds() != null) {
+            changedTeachers.addAll(event.getUserIds());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (materialized) {
+            refresh();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${task.stats.full-refresh-ms:300000}", initialDelayString = "${task.stats.full-refresh-ms:300000}")
+    public void scheduleFullRefresh() {
+        fullRefresh.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${task.stats.refresh-ms:2000}", initialDelayString = "${task.stats.refresh-ms:2000}")
+    public synchronized void refresh() {
+        if (!materialized) {
+            return;
+        }
+        try {
+            if (fullRefresh.getAndSet(false)) {
+                changedTeachers.clear();
+                materialize(null);
+                return;
+            }
+            Set<String> teachers = new HashSet<>(changedTeachers);
+            changedTeachers.removeAll(teachers);
+            teachers.forEach(this::materialize);
+        } catch (RuntimeException e) {
+            // Try everything again next time rather than leave some teachers stale
+            fullRefresh.set(true);
+            log.warn("Task stats refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rewrites the task_stats rows of one teacher, or of everyone when teacherId is null. Rows in that scope
+     * which this run did not produce are removed by id rather than by age, so refreshes running at the same
+     * time on other replicas never delete each other's rows.
+     */
+    private void materialize(String teacherId) {
+        Date refreshedAt = new Date();
+        Set<String> written = new HashSet<>();
+        for (String dimension : DIMENSIONS) {
+            List<TaskStatsRow> rows = aggregate(dimension, teacherId);
+            if (rows.isEmpty()) {
+                continue;
+            }
+            BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TaskStatsRow.class);
+            for (TaskStatsRow row : rows) {
+                row.setRefreshedAt(refreshedAt);
+                operations.replaceOne(new Query(Criteria.where("_id").is(row.getId())), row, FindAndReplaceOptions.options().upsert());
+                written.add(row.getId());
+            }
+            operations.execute();
+        }
+        Criteria stale = Criteria.where("_id").nin(written);
+        if (teacherId != null) {
+            stale.and("teacherId").is(teacherId);
+        }
+        mongoTemplate.remove(new Query(stale), TaskStatsRow.class);
+    }
+
+    // Runs the pipeline of one dimension, over all tasks or only the given teacher's
+    private List<TaskStatsRow> aggregate(String dimension, String teacherId) {
+        List<Document> pipeline = new ArrayList<>();
+        if (teacherId != null) {
+            pipeline.add(new Document("$match", new Document("teacherId", teacherId)));
+        }
+        Object key;
+        switch (dimension) {
+            case "subjects" -> key = new Document("$ifNull", List.of("$subject", NO_SUBJECT));
+            case "teachers" -> key = "$teacherId";
+            case "students" -> {
+                // A task counts once for each assigned student, whether listed in studentIds or as the legacy studentId
+                pipeline.add(new Document("$addFields", new Document("statsStudent", new Document("$setUnion", List.of(
+                        new Document("$ifNull", List.of("$studentIds", List.of())),
+                        new Document("$cond", List.of(new Document("$ifNull", List.of("$studentId", false)), List.of("$studentId"), List.of())))))));
+                pipeline.add(new Document("$unwind", "$statsStudent"));
+                key = "$statsStudent";
+            }
+            default -> throw new IllegalArgumentException("Unknown stats dimension: " + dimension);
+        }
+        pipeline.add(new Document("$group", new Document("_id", new Document("teacherId", "$teacherId").append("key", key))
+                .append("total", new Document("$sum", 1))
+                .append("done", new Document("$sum", new Document("$cond", List.of("$taskDone", 1, 0))))
+                .append("gradeSum", new Document("$sum", "$grade"))
+                .append("graded", new Document("$sum", new Document("$cond", List.of(new Document("$isNumber", "$grade"), 1, 0))))
+                .append("confidenceSum", new Document("$sum", "$analysisConfidence"))
+                .append("analyzed", new Document("$sum", new Document("$cond", List.of(new Document("$isNumber", "$analysisConfidence"), 1, 0))))));
+        // Tasks without a teacher still need a string key
+        Document stringKey = new Document("$ifNull", List.of(new Document("$toString", "$_id.key"), ""));
+        pipeline.add(new Document("$project", new Document("_id", new Document("$concat", List.of(dimension, "|",
+                        new Document("$ifNull", List.of("$_id.teacherId", "")), "|", stringKey)))
+                .append("dimension", new Document("$literal", dimension))
+                .append("teacherId", "$_id.teacherId")
+                .append("key", stringKey)
+                .append("total", 1).append("done", 1)
+                .append("gradeSum", 1).append("graded", 1)
+                .append("confidenceSum", 1).append("analyzed", 1)));
+
+        String tasks = mongoTemplate.getCollectionName(Task.class);
+        List<TaskStatsRow> rows = new ArrayList<>();
+        for (Document row : mongoTemplate.getCollection(tasks).aggregate(pipeline)) {
+            rows.add(mongoTemplate.getConverter().read(TaskStatsRow.class, row));
+        }
+        return rows;
+    }
+
+    // Adds up the per-teacher rows of each key
+    private List<TaskStats> rollUp(List<TaskStatsRow> rows) {
+        Map<String, TaskStatsRow> byKey = new TreeMap<>();
+        for (TaskStatsRow row : rows) {
+            String key = row.getKey() != null ? row.getKey() : "";
+            TaskStatsRow sum = byKey.computeIfAbsent(key, k -> new TaskStatsRow());
+            sum.setKey(key);
+            sum.setTotal(sum.getTotal() + row.getTotal());
+            sum.setDone(sum.getDone() + row.getDone());
+            sum.setGradeSum(sum.getGradeSum() + row.getGradeSum());
+            sum.setGraded(sum.getGraded() + row.getGraded());
+            sum.setConfidenceSum(sum.getConfidenceSum() + row.getConfidenceSum());
+            sum.setAnalyzed(sum.getAnalyzed() + row.getAnalyzed());
+        }
+        List<TaskStats> stats = new ArrayList<>(byKey.size());
+        for (TaskStatsRow sum : byKey.values()) {
+            TaskStats entry = new TaskStats(sum.getKey(), sum.getTotal(), sum.getDone(), 0, null, sum.getGraded(), null, sum.getAnalyzed());
+            finish(entry, sum.getGradeSum(), sum.getConfidenceSum());
+            stats.add(entry);
+        }
+        return stats;
+    }
+
+    private static void finish(TaskStats stats, double gradeSum, double confidenceSum) {
+        stats.setCompletionRate(stats.getTotal() == 0 ? 0 : (double) stats.getDone() / stats.getTotal());
+        stats.setAverageGrade(stats.getGraded() == 0 ? null : gradeSum / stats.getGraded());
+        stats.setAverageConfidence(stats.getAnalyzed() == 0 ? null : confidenceSum / stats.getAnalyzed());
+    }
+}
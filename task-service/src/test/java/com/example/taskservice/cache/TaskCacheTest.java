@@ -0,0 +1,147 @@
+package com.example.taskservice.cache;
+
+import com.example.taskservice.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TaskCacheTest {
+
+    private final InMemoryTaskCacheInvalidationChannel channel = new InMemoryTaskCacheInvalidationChannel();
+
+    @Test
+    void repeatedReadsHitTheCache() {
+        TaskCache cache = newCache();
+        AtomicInteger loads = new AtomicInteger();
+        Task task = task("t1", "teacher", "s1");
+
+        Task first = cache.getTask("t1", id -> { loads.incrementAndGet(); return task; });
+        Task second = cache.getTask("t1", id -> { loads.incrementAndGet(); return task; });
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void writeEvictsTaskAndListsOfOldAndNewAssignees() {
+        TaskCache cache = newCache();
+        AtomicInteger loads = new AtomicInteger();
+        Task before = task("t1", "teacher", "s1");
+        Task after = task("t1", "teacher", "s2");
+        cache.getTask("t1", id -> before);
+        cache.getStudentTasks("s1", "v1", () -> { loads.incrementAndGet(); return List.of(before); });
+        cache.getStudentTasks("s2", "v1", () -> { loads.incrementAndGet(); return List.of(); });
+
+        cache.taskChanged(before, after);
+
+        assertSame(after, cache.getTask("t1", id -> after));
+        cache.getStudentTasks("s1", "v1", () -> { loads.incrementAndGet(); return List.of(); });
+        cache.getStudentTasks("s2", "v1", () -> { loads.incrementAndGet(); return List.of(after); });
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void listCachedAtAnotherVersionIsReloadedAndCarriesItsVersion() {
+        TaskCache cache = newCache();
+        AtomicInteger loads = new AtomicInteger();
+        Task task = task("t1", "teacher", "s1");
+
+        VersionedTasks first = cache.getStudentTasks("s1", "v1", () -> { loads.incrementAndGet(); return List.of(); });
+        VersionedTasks cached = cache.getStudentTasks("s1", "v1", () -> { loads.incrementAndGet(); return List.of(task); });
+        // The counter moved without this replica seeing an eviction
+        VersionedTasks reloaded = cache.getStudentTasks("s1", "v2", () -> { loads.incrementAndGet(); return List.of(task); });
+
+        assertSame(first, cached);
+        assertEquals("v2", reloaded.version());
+        assertEquals(List.of(task), reloaded.tasks());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidationReachesOtherReplicasOnTheSameChannel() {
+        TaskCache replicaA = newCache();
+        TaskCache replicaB = newCache();
+        Task before = task("t1", "teacher", "s1");
+        Task after = task("t1", "teacher", "s1");
+        replicaB.getTask("t1", id -> before);
+
+        replicaA.taskChanged(before, after);
+
+        assertSame(after, replicaB.getTask("t1", id -> after));
+    }
+
+    @Test
+    void loadsRunOutsideTheCacheAndConcurrentMissesShareOne() throws Exception {
+        TaskCache cache = newCache();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Task task = task("t1", "teacher", "s1");
+
+        CompletableFuture<Task> first = CompletableFuture.supplyAsync(() -> cache.getTask("t1", id -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return task;
+        }));
+        loading.await(5, TimeUnit.SECONDS);
+        // Another key is served while the first load is still blocked
+        assertSame(task, cache.getTask("t2", id -> task));
+        CompletableFuture<Task> second = CompletableFuture.supplyAsync(
+                () -> cache.getTask("t1", id -> { loads.incrementAndGet(); return task; }));
+        release.countDown();
+
+        assertSame(task, first.get(5, TimeUnit.SECONDS));
+        assertSame(task, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void writeDuringLoadDropsTheLoadedValue() throws Exception {
+        TaskCache cache = newCache();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Task before = task("t1", "teacher", "s1");
+        Task after = task("t1", "teacher", "s1");
+
+        CompletableFuture<Task> read = CompletableFuture.supplyAsync(() -> cache.getTask("t1", id -> {
+            loading.countDown();
+            await(release);
+            return before;
+        }));
+        loading.await(5, TimeUnit.SECONDS);
+        cache.taskChanged(before, after);
+        release.countDown();
+        read.get(5, TimeUnit.SECONDS);
+
+        assertSame(after, cache.getTask("t1", id -> after));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private TaskCache newCache() {
+        return new TaskCache(100, 100, Duration.ofMinutes(5), channel);
+    }
+
+    private Task task(String id, String teacherId, String studentId) {
+        Task task = new Task();
+        task.setId(id);
+        task.setTeacherId(teacherId);
+        task.setStudentId(studentId);
+        return task;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.taskservice.controller;
+
+import com.example.taskservice.model.Task;
+import com.example.taskservice.repository.TaskRepository;
+import com.example.taskservice.service.TaskArchive;
+import com.example.taskservice.service.TaskChangeNotifier;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TaskControllerTest {
+
+    private final TaskRepository taskRepository = mock(TaskRepository.class);
+    private final TaskArchive taskArchive = mock(TaskArchive.class);
+    private final MockMvc mvc;
+
+    TaskControllerTest() {
+        TaskController controller = new TaskController();
+        ReflectionTestUtils.setField(controller, "taskRepository", taskRepository);
+        ReflectionTestUtils.setField(controller, "taskArchive", taskArchive);
+        ReflectionTestUtils.setField(controller, "taskChangeNotifier", mock(TaskChangeNotifier.class));
+        ReflectionTestUtils.setField(controller, "objectMapper", new ObjectMapper());
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void putAtTheExpectedVersionReplacesAndMovesTheVersion() throws Exception {
+        when(taskRepository.replace(any(Task.class), eq(3L))).thenReturn(task(3L));
+
+        mvc.perform(put("/api/tasks/t1").header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"new\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(4));
+    }
+
+    @Test
+    void putAtAnOlderVersionIsAConflict() throws Exception {
+        when(taskRepository.replace(any(Task.class), eq(2L))).thenReturn(null);
+        when(taskRepository.existsById("t1")).thenReturn(true);
+
+        mvc.perform(put("/api/tasks/t1").header(HttpHeaders.IF_MATCH, "W/\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"new\"}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void versionedPutOfAMissingTaskIsNotFound() throws Exception {
+        when(taskRepository.replace(any(Task.class), eq(2L))).thenReturn(null);
+        when(taskRepository.existsById("t1")).thenReturn(false);
+
+        mvc.perform(put("/api/tasks/t1").header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"new\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void putIgnoresAVersionInTheBody() throws Exception {
+        when(taskRepository.replace(any(Task.class), isNull())).thenReturn(task(5L));
+
+        mvc.perform(put("/api/tasks/t1")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"new\",\"version\":2}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(6));
+        verify(taskRepository).replace(any(Task.class), isNull());
+    }
+
+    @Test
+    void patchAtTheExpectedVersionApplies() throws Exception {
+        when(taskRepository.applyPatch(eq("t1"), anyMap(), eq(3L))).thenReturn(task(4L));
+
+        mvc.perform(patch("/api/tasks/t1")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"new\",\"version\":3}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(4));
+        verify(taskRepository).applyPatch("t1", Map.of("title", "new"), 3L);
+    }
+
+    @Test
+    void patchAtAnOlderVersionIsAConflict() throws Exception {
+        when(taskRepository.applyPatch(eq("t1"), anyMap(), eq(2L))).thenReturn(null);
+        when(taskRepository.existsById("t1")).thenReturn(true);
+
+        mvc.perform(patch("/api/tasks/t1")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"new\",\"version\":2}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void patchOfAMissingTaskIsNotFound() throws Exception {
+        when(taskRepository.applyPatch(eq("t1"), anyMap(), eq(2L))).thenReturn(null);
+        when(taskRepository.existsById("t1")).thenReturn(false);
+
+        mvc.perform(patch("/api/tasks/t1")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"new\",\"version\":2}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void patchOfAnArchivedTaskRestoresItAndApplies() throws Exception {
+        when(taskRepository.applyPatch(eq("t1"), anyMap(), eq(3L))).thenReturn(null, task(4L));
+        when(taskArchive.unarchive("t1")).thenReturn(true);
+
+        mvc.perform(patch("/api/tasks/t1")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"grade\":90,\"version\":3}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(4));
+        verify(taskRepository, times(2)).applyPatch(eq("t1"), anyMap(), eq(3L));
+    }
+
+    @Test
+    void versionedPutOfAnArchivedTaskRestoresItAndReplaces() throws Exception {
+        when(taskRepository.replace(any(Task.class), eq(3L))).thenReturn(null, task(3L));
+        when(taskArchive.unarchive("t1")).thenReturn(true);
+
+        mvc.perform(put("/api/tasks/t1").header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"new\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(4));
+    }
+
+    private Task task(Long version) {
+        Task task = new Task();
+        task.setId("t1");
+        task.setTitle("old");
+        task.setVersion(version);
+        return task;
+    }
+}
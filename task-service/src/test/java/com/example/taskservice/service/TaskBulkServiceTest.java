@@ -0,0 +1,89 @@
+package com.example.taskservice.service;
+
+import com.example.taskservice.model.BulkItemResult;
+import com.example.taskservice.model.BulkResult;
+import com.example.taskservice.model.Task;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TaskBulkServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final List<String> inserted = new ArrayList<>();
+    private final TaskBulkService service = new TaskBulkService(mongoTemplate, new ObjectMapper());
+
+    TaskBulkServiceTest() {
+        BulkOperations operations = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Task.class))).thenReturn(operations);
+        when(operations.insert(anyList())).thenAnswer(call -> {
+            List<?> tasks = call.getArgument(0);
+            tasks.forEach(task -> inserted.add(((Task) task).getTitle()));
+            return operations;
+        });
+        BulkWriteResult written = mock(BulkWriteResult.class);
+        when(written.getMatchedCount()).thenReturn(2);
+        when(operations.execute()).thenReturn(written);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        ReflectionTestUtils.setField(service, "maxItems", 100);
+    }
+
+    @Test
+    void mistypedItemFailsAloneAndTheRestIsWritten() throws Exception {
+        BulkResult result = createAll("[{\"title\":\"a\"},{\"title\":\"b\",\"grade\":\"high\"},{\"title\":\"c\"}]");
+
+        assertEquals(List.of("a", "c"), inserted);
+        assertEquals(2, result.getSucceeded());
+        assertEquals(1, result.getFailed());
+        assertEquals(List.of("created", "failed", "created"), statuses(result));
+    }
+
+    @Test
+    void malformedJsonReportsWhatWasWrittenBeforeIt() throws Exception {
+        BulkResult result = createAll("[{\"title\":\"a\"},{\"title\":\"b\"},{\"title\":\"c\"},{\"title\": }]");
+
+        assertEquals(List.of("a", "b", "c"), inserted);
+        assertEquals(List.of("created", "created", "created", "failed"), statuses(result));
+        assertTrue(result.getItems().get(3).getError().startsWith("Malformed JSON"));
+    }
+
+    @Test
+    void malformedJsonBeforeAnyItemRejectsTheRequest() {
+        assertThrows(IllegalArgumentException.class, () -> createAll("[{\"title\": }]"));
+        assertTrue(inserted.isEmpty());
+    }
+
+    @Test
+    void nonObjectPatchItemFailsAloneAndTheRestIsApplied() throws Exception {
+        BulkResult result = service.patchAll(new ByteArrayInputStream(
+                "[{\"id\":\"t1\",\"title\":\"a\"},[1,2],\"t2\",{\"id\":\"t3\",\"title\":\"c\"}]".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(List.of("updated", "failed", "failed", "updated"), statuses(result));
+        assertEquals("t3", result.getItems().get(3).getId());
+    }
+
+    private BulkResult createAll(String json) throws Exception {
+        return service.createAll(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static List<String> statuses(BulkResult result) {
+        return result.getItems().stream().map(BulkItemResult::getStatus).toList();
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.taskservice.service;
+
+import com.example.taskservice.model.TaskChangeEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskEventStreamTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final Deque<RecordingEmitter> emitters = new ArrayDeque<>();
+    private final TaskEventStream stream = new TaskEventStream() {
+        @Override
+        SseEmitter createEmitter() {
+            return emitters.removeFirst();
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        stream.shutdown();
+    }
+
+    @Test
+    void slowSubscriberDoesNotHoldUpOthers() throws Exception {
+        ReflectionTestUtils.setField(stream, "subscriberBuffer", 16);
+        RecordingEmitter slow = new RecordingEmitter(release, 0);
+        RecordingEmitter fast = new RecordingEmitter(null, 3);
+        emitters.add(slow);
+        emitters.add(fast);
+        stream.subscribe(null);
+        stream.subscribe(null);
+
+        for (int i = 0; i < 3; i++) {
+            stream.publish(event("t" + i));
+        }
+
+        assertTrue(fast.received.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void subscriberThatFallsTooFarBehindIsDisconnected() throws Exception {
+        ReflectionTestUtils.setField(stream, "subscriberBuffer", 2);
+        RecordingEmitter slow = new RecordingEmitter(release, 0);
+        emitters.add(slow);
+        stream.subscribe("s1");
+
+        for (int i = 0; i < 10; i++) {
+            stream.publish(event("t" + i));
+        }
+
+        assertTrue(slow.completed.await(5, TimeUnit.SECONDS));
+    }
+
+    private TaskChangeEvent event(String taskId) {
+        return new TaskChangeEvent("updated", taskId, Set.of("s1"), null);
+    }
+
+    // Blocks every send until released, like a client that stopped reading
+    private static class RecordingEmitter extends SseEmitter {
+        private final CountDownLatch block;
+        final CountDownLatch received;
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        RecordingEmitter(CountDownLatch block, int expected) {
+            this.block = block;
+            this.received = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (block != null) {
+                try {
+                    block.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            received.countDown();
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed.countDown();
+        }
+    }
+}
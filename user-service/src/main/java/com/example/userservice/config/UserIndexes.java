@@ -0,0 +1,62 @@
+package com.example.userservice.config;
+
+import com.example.userservice.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates the unique email index. This is not done through @Indexed: data written before the index
+ * existed may hold duplicate emails, and a failed auto-created index stops the application from
+ * starting. Here a failure is logged with the duplicates to clean up, and the service runs without
+ * uniqueness until the next start after the cleanup.
+ */
+@Component
+@Slf4j
+public class UserIndexes {
+
+    private static final int MAX_LOGGED_DUPLICATES = 20;
+
+    private final MongoTemplate mongoTemplate;
+
+    public UserIndexes(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureUniqueEmail() {
+        try {
+            // sparse: users created without an email do not collide on null
+            mongoTemplate.indexOps(User.class).ensureIndex(new Index("email", Sort.Direction.ASC).named("email").unique().sparse());
+        } catch (DataAccessException e) {
+            log.error("Could not create the unique email index, emails are not deduplicated until it exists: {}. Duplicates: {}",
+                    e.getMessage(), duplicateEmails());
+        }
+    }
+
+    private List<String> duplicateEmails() {
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("email", new Document("$type", "string"))),
+                new Document("$group", new Document("_id", "$email").append("count", new Document("$sum", 1))),
+                new Document("$match", new Document("count", new Document("$gt", 1))),
+                new Document("$limit", MAX_LOGGED_DUPLICATES));
+        List<String> duplicates = new ArrayList<>();
+        try {
+            for (Document row : mongoTemplate.getCollection(mongoTemplate.getCollectionName(User.class)).aggregate(pipeline)) {
+                duplicates.add(row.get("_id") + " (" + row.get("count") + " users)");
+            }
+        } catch (RuntimeException e) {
+            duplicates.add("lookup failed: " + e.getMessage());
+        }
+        return duplicates;
+    }
+}
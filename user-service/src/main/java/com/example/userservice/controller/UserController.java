@@ -1,24 +1,89 @@
 package com.example.userservice.controller;
 
 import com.example.userservice.model.User;
+import com.example.userservice.model.UserPage;
 import com.example.userservice.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
     
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final Set<String> PROJECTABLE_FIELDS = Set.of("name", "email", "role");
+    
     @Autowired
     private UserRepository userRepository;
     
+    @Value("${user.batch.max-ids:1000}")
+    private int maxBatchIds;
+    
     @GetMapping
-    public List<User> getAllUsers() {
+    public List<User> getAllUsers(WebRequest request) {
+        // Answers 304 from the shared version counter alone when nothing changed since the client's copy
+        if (request.checkNotModified(listTag())) {
+            return null;
+        }
         return userRepository.findAll();
     }
     
+    // All users with one role, from the role_id index: GET /api/users?role=student
+    @GetMapping(params = {"role", "!limit"})
+    public List<User> getUsersByRole(@RequestParam String role, WebRequest request) {
+        if (request.checkNotModified(listTag())) {
+            return null;
+        }
+        return userRepository.findByRoleOrderByIdAsc(role);
+    }
+    
+    // Keyset pagination on _id: GET /api/users?role=student&limit=50&after=<nextCursor>
+    @GetMapping(params = "limit")
+    public UserPage getUserPage(@RequestParam(required = false) String role,
+                                @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                @RequestParam(required = false) String after) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // Fetch one extra document to find out whether another page exists
+        List<User> users = userRepository.findPage(role, after, pageSize + 1);
+        String nextCursor = null;
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            nextCursor = users.get(pageSize - 1).getId();
+        }
+        return new UserPage(users, nextCursor);
+    }
+    
+    // Body is a JSON array of ids; answers in request order, skipping unknown ids. ?fields=name,role limits what is loaded.
+    @PostMapping("/batch")
+    public List<User> getUsersByIds(@RequestBody List<String> ids, @RequestParam(required = false) String fields) {
+        Set<String> uniqueIds = ids.stream().filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new));
+        if (uniqueIds.size() > maxBatchIds) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "At most " + maxBatchIds + " ids per batch, got " + uniqueIds.size());
+        }
+        if (uniqueIds.isEmpty()) {
+            return List.of();
+        }
+        Map<String, User> found = userRepository.findByIds(uniqueIds, parseFields(fields)).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return uniqueIds.stream().map(found::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+    
     @GetMapping("/{id}")
     public User getUserById(@PathVariable String id) {
         return userRepository.findById(id).orElse(null);
@@ -26,17 +91,48 @@ public class UserController {
     
     @PostMapping
     public User createUser(@RequestBody User user) {
-        return userRepository.save(user);
+        User savedUser = save(user);
+        userRepository.bumpListVersion();
+        return savedUser;
     }
     
     @PutMapping("/{id}")
     public User updateUser(@PathVariable String id, @RequestBody User user) {
         user.setId(id);
-        return userRepository.save(user);
+        User savedUser = save(user);
+        userRepository.bumpListVersion();
+        return savedUser;
     }
     
     @DeleteMapping("/{id}")
     public void deleteUser(@PathVariable String id) {
         userRepository.deleteById(id);
+        userRepository.bumpListVersion();
+    }
+    
+    private User save(User user) {
+        try {
+            return userRepository.save(user);
+        } catch (DuplicateKeyException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Email already in use: " + user.getEmail());
+        }
+    }
+    
+    // Read before the list itself, so the tag never runs ahead of the body it is sent with
+    private String listTag() {
+        return "W/\"" + userRepository.listVersion() + "\"";
+    }
+    
+    private Set<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return Set.of();
+        }
+        Set<String> parsed = Arrays.stream(fields.split(",")).map(String::trim).filter(field -> !field.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        parsed.removeIf("id"::equals);
+        if (!PROJECTABLE_FIELDS.containsAll(parsed)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fields must be among " + PROJECTABLE_FIELDS);
+        }
+        return parsed;
     }
-}
\ No newline at end of file
+}
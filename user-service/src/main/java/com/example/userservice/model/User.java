@@ -1,15 +1,18 @@
 package com.example.userservice.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import lombok.Data;
 
 @Data
 @Document(collection = "users")
+// Role lists are read in _id order so they can be paged by keyset
+@CompoundIndex(name = "role_id", def = "{'role': 1, '_id': 1}")
 public class User {
     @Id
     private String id;
     private String name;
-    private String email;
+    private String email; // Unique when set; the index is created by UserIndexes
     private String role; // "teacher" or "student"
 }
@@ -0,0 +1,14 @@
+package com.example.userservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPage {
+    private List<User> items;
+    private String nextCursor; // Pass as ?after= to fetch the next page; null on the last page
+}
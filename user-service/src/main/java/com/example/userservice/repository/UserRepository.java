@@ -3,6 +3,10 @@ package com.example.userservice.repository;
 import com.example.userservice.model.User;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-public interface UserRepository extends MongoRepository<User, String> {
+import java.util.List;
+
+public interface UserRepository extends MongoRepository<User, String>, UserRepositoryCustom {
     User findByEmail(String email);
-}
\ No newline at end of file
+
+    List<User> findByRoleOrderByIdAsc(String role);
+}
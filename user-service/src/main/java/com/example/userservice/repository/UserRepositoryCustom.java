@@ -0,0 +1,20 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.model.User;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface UserRepositoryCustom {
+    // One $in query on _id; only the given fields (plus id) are loaded, all of them when fields is empty
+    List<User> findByIds(Collection<String> ids, Collection<String> fields);
+
+    // Keyset page in _id order, optionally restricted to one role
+    List<User> findPage(String role, String afterId, int limit);
+
+    // Shared counter behind the user list ETags, in the counters collection so every replica sees the same value
+    long listVersion();
+
+    // Moves the list version on; called after every write
+    void bumpListVersion();
+}
@@ -0,0 +1,54 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.model.User;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+import java.util.List;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    private static final Sort BY_ID = Sort.by(Sort.Direction.ASC, "_id");
+    private static final String COUNTERS = "counters";
+    private static final Query LIST_VERSION = new Query(Criteria.where("_id").is("users"));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<User> findByIds(Collection<String> ids, Collection<String> fields) {
+        // "id" is the mapped property, so ids that are ObjectIds are converted before the $in
+        Query query = new Query(Criteria.where("id").in(ids));
+        fields.forEach(field -> query.fields().include(field));
+        return mongoTemplate.find(query, User.class);
+    }
+
+    @Override
+    public List<User> findPage(String role, String afterId, int limit) {
+        Query query = new Query().with(BY_ID).limit(limit);
+        if (role != null) {
+            query.addCriteria(Criteria.where("role").is(role));
+        }
+        if (afterId != null) {
+            query.addCriteria(Criteria.where("id").gt(afterId));
+        }
+        return mongoTemplate.find(query, User.class);
+    }
+
+    @Override
+    public long listVersion() {
+        Document counter = mongoTemplate.findOne(LIST_VERSION, Document.class, COUNTERS);
+        return counter == null ? 0 : ((Number) counter.get("value")).longValue();
+    }
+
+    @Override
+    public void bumpListVersion() {
+        mongoTemplate.upsert(LIST_VERSION, new Update().inc("value", 1), COUNTERS);
+    }
+}